@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rasterizes many encoded stroke sets in parallel, for example to re-render an archive of stored signatures.
+ * <p>
+ * Each worker thread keeps one {@link InkRasterizer} and pulls the next stroke set from a shared counter, so pixel
+ * buffers are reused across items, and the load balances itself when stroke sets vary in complexity. Threads created
+ * by the batch rasterizer also keep their buffers across batches, while threads of a supplied executor release them
+ * at the end of each batch.
+ * Like InkRasterizer, this class has no dependency on the Android framework and runs headless on any JVM.
+ */
+@SuppressWarnings("unused")
+public class InkBatchRasterizer {
+
+    final ExecutorService executor;
+    final int parallelism;
+    final boolean ownsExecutor;
+
+    // one rasterizer per worker thread, so pixel buffers are reused across items, and across batches on own threads
+    final ThreadLocal<InkRasterizer> rasterizers = new ThreadLocal<InkRasterizer>() {
+        @Override
+        protected InkRasterizer initialValue() {
+            return new InkRasterizer();
+        }
+    };
+
+    /**
+     * Creates a batch rasterizer with one worker thread per available processor
+     */
+    public InkBatchRasterizer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a batch rasterizer with its own pool of worker threads. Call {@link #shutdown()} when done
+     *
+     * @param parallelism The number of worker threads
+     */
+    public InkBatchRasterizer(int parallelism) {
+        this(Executors.newFixedThreadPool(checkParallelism(parallelism), new WorkerThreadFactory()), parallelism, true);
+    }
+
+    /**
+     * Creates a batch rasterizer running on the given executor.
+     * The executor's threads only hold pixel buffers while a batch runs
+     *
+     * @param executor    The executor to run the workers on
+     * @param parallelism The number of workers to submit for each batch
+     */
+    public InkBatchRasterizer(ExecutorService executor, int parallelism) {
+        this(executor, checkParallelism(parallelism), false);
+    }
+
+    InkBatchRasterizer(ExecutorService executor, int parallelism, boolean ownsExecutor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor is null");
+        }
+
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Rasterizes the encoded stroke sets, handing each result to the callback on the worker thread that produced it.
+     * The pixel array passed to the callback is reused by that worker and is only valid for the duration of the call.
+     * A stroke set that cannot be decoded or rasterized is reported to {@link Callback#onFailed} and does not stop
+     * the rest of the batch
+     *
+     * @param strokeSets      The stroke sets, encoded with {@link InkStrokeSet#toByteArray()}
+     * @param scale           The scale applied to the original view size, ie. 0.25 for a quarter size thumbnail
+     * @param backgroundColor The background color (0 for transparent)
+     * @param callback        The callback receiving each result
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the workers
+     */
+    public void rasterize(final List<byte[]> strokeSets, final float scale, final int backgroundColor, final Callback callback) throws InterruptedException {
+        if (callback == null) {
+            throw new IllegalArgumentException("Callback is null");
+        }
+
+        final int count = strokeSets.size();
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicBoolean failed = new AtomicBoolean();
+
+        int workers = Math.min(parallelism, count);
+        List<Future<Void>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    InkRasterizer rasterizer = rasterizers.get();
+
+                    try {
+                        int i;
+                        while (!failed.get() && (i = next.getAndIncrement()) < count) {
+                            // a stroke set that cannot be decoded or rasterized only fails its own item
+                            int[] pixels;
+                            try {
+                                InkStrokeSet strokeSet = InkStrokeSet.fromByteArray(strokeSets.get(i));
+                                pixels = rasterizer.rasterize(strokeSet, scale, backgroundColor);
+                            } catch (RuntimeException e) {
+                                callback.onFailed(i, e);
+                                continue;
+                            }
+
+                            callback.onRasterized(i, pixels, rasterizer.getWidth(), rasterizer.getHeight());
+                        }
+                    } catch (RuntimeException | Error e) {
+                        // a throwing callback or an error aborts the batch
+                        failed.set(true);
+                        throw e;
+                    } finally {
+                        // threads of a caller-supplied executor outlive the batch, don't leave a pixel buffer behind
+                        if (!ownsExecutor) {
+                            rasterizers.remove();
+                        }
+                    }
+
+                    return null;
+                }
+            }));
+        }
+
+        // wait for all workers, reporting the first failure
+        Throwable failure = null;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                failed.set(true);
+                throw e;
+            }
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    /**
+     * Rasterizes the encoded stroke sets, returning a copy of every result
+     *
+     * @param strokeSets      The stroke sets, encoded with {@link InkStrokeSet#toByteArray()}
+     * @param scale           The scale applied to the original view size, ie. 0.25 for a quarter size thumbnail
+     * @param backgroundColor The background color (0 for transparent)
+     * @return The result of each stroke set, in input order
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the workers
+     */
+    public List<Result> rasterize(List<byte[]> strokeSets, float scale, int backgroundColor) throws InterruptedException {
+        final Result[] results = new Result[strokeSets.size()];
+
+        rasterize(strokeSets, scale, backgroundColor, new Callback() {
+            @Override
+            public void onRasterized(int index, int[] pixels, int width, int height) {
+                results[index] = new Result(pixels.clone(), width, height, null);
+            }
+
+            @Override
+            public void onFailed(int index, RuntimeException e) {
+                results[index] = new Result(null, 0, 0, e);
+            }
+        });
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Shuts down the worker threads, if they were created by this rasterizer
+     */
+    public void shutdown() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+
+    //--------------------------------------
+    // Listener Interfaces
+    //--------------------------------------
+
+    /**
+     * Callback receiving rasterized stroke sets
+     */
+    public interface Callback {
+        /**
+         * Callback method when a stroke set has been rasterized.
+         * Called on a worker thread, possibly concurrently for different indexes
+         *
+         * @param index  The index of the stroke set in the input list
+         * @param pixels The non-premultiplied ARGB pixels, row by row. Only valid during this call
+         * @param width  The width of the output (in px)
+         * @param height The height of the output (in px)
+         */
+        void onRasterized(int index, int[] pixels, int width, int height);
+
+        /**
+         * Callback method when a stroke set could not be decoded or rasterized.
+         * Called on a worker thread, possibly concurrently for different indexes
+         *
+         * @param index The index of the stroke set in the input list
+         * @param e     The cause of the failure
+         */
+        void onFailed(int index, RuntimeException e);
+    }
+
+
+    //--------------------------------------
+    // Result Classes
+    //--------------------------------------
+
+    /**
+     * The outcome of rasterizing one stroke set
+     */
+    public static final class Result {
+
+        final int[] pixels;
+        final int width;
+        final int height;
+        final RuntimeException error;
+
+
+        Result(int[] pixels, int width, int height, RuntimeException error) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.error = error;
+        }
+
+        /**
+         * Checks if the stroke set was rasterized
+         *
+         * @return True or False
+         */
+        public boolean isSuccessful() {
+            return error == null;
+        }
+
+        /**
+         * Returns the rasterized pixels
+         *
+         * @return The non-premultiplied ARGB pixels, row by row, or null if rasterizing failed
+         */
+        public int[] getPixels() {
+            return pixels;
+        }
+
+        /**
+         * Returns the width of the output
+         *
+         * @return The width (in px), or 0 if rasterizing failed
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * Returns the height of the output
+         *
+         * @return The height (in px), or 0 if rasterizing failed
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Returns the reason rasterizing failed
+         *
+         * @return The error, or null if rasterizing succeeded
+         */
+        public RuntimeException getError() {
+            return error;
+        }
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    static int checkParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+
+        return parallelism;
+    }
+
+
+    //--------------------------------------
+    // Util Classes
+    //--------------------------------------
+
+    static class WorkerThreadFactory implements ThreadFactory {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ink-rasterizer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
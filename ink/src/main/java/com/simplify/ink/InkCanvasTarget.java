@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.view.View;
+
+/**
+ * Draws renderer geometry onto an Android canvas, optionally invalidating the drawn area of a view
+ */
+class InkCanvasTarget implements InkRenderer.Target {
+
+    Canvas canvas;
+    final Paint paint;
+    final View view;
+
+
+    InkCanvasTarget(Canvas canvas, View view) {
+        this.canvas = canvas;
+        this.view = view;
+
+        paint = new Paint();
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setAntiAlias(true);
+    }
+
+    @Override
+    public void drawDot(float x, float y, float width, int color) {
+        if (canvas == null) {
+            return;
+        }
+
+        paint.setColor(color);
+        paint.setStyle(Paint.Style.FILL);
+        canvas.drawCircle(x, y, width / 2f, paint);
+    }
+
+    @Override
+    public void drawLine(float x1, float y1, float x2, float y2, float width, int color) {
+        if (canvas == null) {
+            return;
+        }
+
+        paint.setColor(color);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(width);
+        canvas.drawLine(x1, y1, x2, y2, paint);
+    }
+
+    @Override
+    public void onDrawn(float left, float top, float right, float bottom) {
+        if (view != null) {
+            view.invalidate((int) Math.floor(left), (int) Math.floor(top), (int) Math.ceil(right), (int) Math.ceil(bottom));
+        }
+    }
+}
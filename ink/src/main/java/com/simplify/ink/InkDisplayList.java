@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import android.annotation.TargetApi;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Keeps renderer geometry as display lists instead of rasterizing it into a bitmap.
+ * <p>
+ * On API 29+, every finished stroke is recorded once into its own RenderNode, and a root node referencing them is
+ * re-recorded only when a stroke is committed. Drawing onto a hardware canvas then records a single node, so the UI
+ * thread cost of a frame does not grow with the number of strokes, while the render thread keeps drawing them with
+ * the GPU. The stroke in progress is kept as a list of drawing operations and replayed on every frame, and finished
+ * strokes keep their operations too, so they can still be drawn onto software canvases, ie. by {@link InkView#getBitmap()}
+ */
+class InkDisplayList implements InkRenderer.Target {
+
+    static final int OP_DOT = 0;
+    static final int OP_LINE = 1;
+    static final int OP_SIZE = 6;               // op, x1, y1, x2, y2, width
+
+    final View view;
+    final Paint paint;
+
+    // finished strokes
+    ArrayList<float[]> strokeOps = new ArrayList<>();
+    ArrayList<int[]> strokeColors = new ArrayList<>();
+    Nodes nodes;
+
+    // stroke in progress
+    float[] ops = new float[OP_SIZE * 64];
+    int[] colors = new int[64];
+    int opCount;
+
+
+    InkDisplayList(View view) {
+        this.view = view;
+
+        paint = new Paint();
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setAntiAlias(true);
+    }
+
+    @Override
+    public void drawDot(float x, float y, float width, int color) {
+        addOp(OP_DOT, x, y, x, y, width, color);
+    }
+
+    @Override
+    public void drawLine(float x1, float y1, float x2, float y2, float width, int color) {
+        addOp(OP_LINE, x1, y1, x2, y2, width, color);
+    }
+
+    @Override
+    public void onDrawn(float left, float top, float right, float bottom) {
+        view.invalidate((int) Math.floor(left), (int) Math.floor(top), (int) Math.ceil(right), (int) Math.ceil(bottom));
+    }
+
+    /**
+     * Moves the stroke in progress to the finished strokes, recording it into a render node when supported
+     */
+    void commit(int width, int height) {
+        if (opCount == 0) {
+            return;
+        }
+
+        float[] finishedOps = Arrays.copyOf(ops, opCount * OP_SIZE);
+        int[] finishedColors = Arrays.copyOf(colors, opCount);
+        strokeOps.add(finishedOps);
+        strokeColors.add(finishedColors);
+        opCount = 0;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            if (nodes == null) {
+                nodes = new Nodes();
+            }
+            nodes.add(finishedOps, finishedColors, width, height);
+        }
+    }
+
+    /**
+     * Draws the finished strokes and the stroke in progress
+     */
+    void draw(Canvas canvas) {
+        if (nodes != null && canvas.isHardwareAccelerated()) {
+            nodes.draw(canvas);
+        } else {
+            for (int n = 0; n < strokeOps.size(); n++) {
+                float[] finishedOps = strokeOps.get(n);
+                drawOps(canvas, finishedOps, strokeColors.get(n), finishedOps.length / OP_SIZE);
+            }
+        }
+
+        drawOps(canvas, ops, colors, opCount);
+    }
+
+    /**
+     * Draws the finished strokes onto a software canvas, ie. the ink bitmap, and discards them
+     */
+    void flatten(Canvas canvas) {
+        for (int n = 0; n < strokeOps.size(); n++) {
+            float[] finishedOps = strokeOps.get(n);
+            drawOps(canvas, finishedOps, strokeColors.get(n), finishedOps.length / OP_SIZE);
+        }
+
+        clear();
+    }
+
+    /**
+     * Checks if there are no finished strokes
+     */
+    boolean isEmpty() {
+        return strokeOps.isEmpty();
+    }
+
+    /**
+     * Discards all strokes
+     */
+    void clear() {
+        strokeOps.clear();
+        strokeColors.clear();
+        if (nodes != null) {
+            nodes.clear();
+        }
+        opCount = 0;
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    void addOp(int op, float x1, float y1, float x2, float y2, float width, int color) {
+        if (opCount == colors.length) {
+            ops = Arrays.copyOf(ops, ops.length * 2);
+            colors = Arrays.copyOf(colors, colors.length * 2);
+        }
+
+        int i = opCount * OP_SIZE;
+        ops[i] = op;
+        ops[i + 1] = x1;
+        ops[i + 2] = y1;
+        ops[i + 3] = x2;
+        ops[i + 4] = y2;
+        ops[i + 5] = width;
+        colors[opCount] = color;
+        opCount++;
+    }
+
+    void drawOps(Canvas canvas, float[] ops, int[] colors, int count) {
+        for (int n = 0; n < count; n++) {
+            int i = n * OP_SIZE;
+            paint.setColor(colors[n]);
+
+            if (ops[i] == OP_DOT) {
+                paint.setStyle(Paint.Style.FILL);
+                canvas.drawCircle(ops[i + 1], ops[i + 2], ops[i + 5] / 2f, paint);
+            } else {
+                paint.setStyle(Paint.Style.STROKE);
+                paint.setStrokeWidth(ops[i + 5]);
+                canvas.drawLine(ops[i + 1], ops[i + 2], ops[i + 3], ops[i + 4], paint);
+            }
+        }
+    }
+
+
+    //--------------------------------------
+    // Util Classes
+    //--------------------------------------
+
+    /**
+     * The render nodes of the finished strokes, only created on API 29+
+     */
+    @TargetApi(Build.VERSION_CODES.Q)
+    class Nodes {
+
+        final ArrayList<RenderNode> strokes = new ArrayList<>();
+        final RenderNode root = new RenderNode("ink");
+
+
+        void add(float[] ops, int[] colors, int width, int height) {
+            // record the stroke once
+            RenderNode stroke = new RenderNode("ink-stroke");
+            stroke.setPosition(0, 0, width, height);
+            RecordingCanvas canvas = stroke.beginRecording(width, height);
+            drawOps(canvas, ops, colors, colors.length);
+            stroke.endRecording();
+            strokes.add(stroke);
+
+            // the root only references the strokes, re-recording it does not replay their drawing operations
+            root.setPosition(0, 0, width, height);
+            canvas = root.beginRecording(width, height);
+            for (RenderNode node : strokes) {
+                canvas.drawRenderNode(node);
+            }
+            root.endRecording();
+        }
+
+        void draw(Canvas canvas) {
+            if (root.hasDisplayList()) {
+                canvas.drawRenderNode(root);
+            }
+        }
+
+        void clear() {
+            for (RenderNode node : strokes) {
+                node.discardDisplayList();
+            }
+            strokes.clear();
+            root.discardDisplayList();
+        }
+    }
+}
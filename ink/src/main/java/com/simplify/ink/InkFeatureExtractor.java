@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import java.util.Arrays;
+
+/**
+ * Computes dynamic signature features (stroke count, timing, velocity and acceleration histograms, bounding box)
+ * incrementally as points arrive. Every feature is kept as a running value, so memory use does not grow with the
+ * number of points and no second pass over the data is ever needed.
+ */
+@SuppressWarnings("unused")
+public class InkFeatureExtractor {
+
+    /**
+     * The default width of a velocity histogram bin (in/s)
+     */
+    public static final float DEFAULT_VELOCITY_BIN_SIZE = 1f;
+
+    /**
+     * The default width of an acceleration histogram bin (in/s^2)
+     */
+    public static final float DEFAULT_ACCELERATION_BIN_SIZE = 25f;
+
+    /**
+     * The default number of bins in each histogram
+     */
+    public static final int DEFAULT_BIN_COUNT = 16;
+
+    // settings
+    final float density;
+    final float velocityBinSize;
+    final float accelerationBinSize;
+
+    // features
+    int strokeCount;
+    int pointCount;
+    long penDownTime;
+    long penUpTime;
+    float length;
+    float maxVelocity;
+    float left, top, right, bottom;
+    final int[] velocityHistogram;
+    final int[] accelerationHistogram;
+
+    // running state
+    boolean inStroke;
+    boolean hasVelocity;
+    float lastX, lastY, lastVelocity;
+    float pendingDistance;
+    long lastTime;
+    long lastStrokeEnd = -1;
+
+    FeatureListener listener;
+
+    /**
+     * Creates an extractor with the default histogram bins
+     *
+     * @param density The screen density (dpi), used to convert pixel velocities to in/s
+     */
+    public InkFeatureExtractor(float density) {
+        this(density, DEFAULT_VELOCITY_BIN_SIZE, DEFAULT_ACCELERATION_BIN_SIZE, DEFAULT_BIN_COUNT);
+    }
+
+    /**
+     * Creates an extractor with custom histogram bins
+     *
+     * @param density             The screen density (dpi), used to convert pixel velocities to in/s
+     * @param velocityBinSize     The width of a velocity bin (in/s)
+     * @param accelerationBinSize The width of an acceleration bin (in/s^2)
+     * @param binCount            The number of bins in each histogram
+     */
+    public InkFeatureExtractor(float density, float velocityBinSize, float accelerationBinSize, int binCount) {
+        if (density <= 0f || velocityBinSize <= 0f || accelerationBinSize <= 0f || binCount < 1) {
+            throw new IllegalArgumentException("Density, bin sizes and bin count must be positive");
+        }
+
+        this.density = density;
+        this.velocityBinSize = velocityBinSize;
+        this.accelerationBinSize = accelerationBinSize;
+
+        velocityHistogram = new int[binCount];
+        accelerationHistogram = new int[binCount];
+    }
+
+    /**
+     * Sets the listener notified with a snapshot every time a stroke ends
+     *
+     * @param listener The listener (may be null)
+     */
+    public void setListener(FeatureListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts a new stroke at the given point
+     *
+     * @param x    The x coordinate (px)
+     * @param y    The y coordinate (px)
+     * @param time The event time (ms)
+     */
+    public void startStroke(float x, float y, long time) {
+        // accumulate pen-up time since the last stroke
+        if (lastStrokeEnd >= 0) {
+            penUpTime += Math.max(time - lastStrokeEnd, 0);
+        }
+
+        // init bounds on first point
+        if (pointCount == 0) {
+            left = right = x;
+            top = bottom = y;
+        }
+
+        inStroke = true;
+        hasVelocity = false;
+        pendingDistance = 0f;
+        lastTime = time;
+        accumulatePoint(x, y);
+    }
+
+    /**
+     * Adds a point to the current stroke. Ignored if no stroke has been started
+     *
+     * @param x    The x coordinate (px)
+     * @param y    The y coordinate (px)
+     * @param time The event time (ms)
+     */
+    public void addPoint(float x, float y, long time) {
+        if (!inStroke) {
+            return;
+        }
+
+        float dx = x - lastX;
+        float dy = y - lastY;
+        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        long dt = time - lastTime;
+
+        length += distance;
+
+        // velocity is undefined for points sharing a timestamp, their distance is carried over to the next segment
+        pendingDistance += distance;
+        if (dt > 0) {
+            penDownTime += dt;
+
+            float velocity = (1000f * pendingDistance) / (dt * density); // in/s
+            maxVelocity = Math.max(maxVelocity, velocity);
+            velocityHistogram[bin(velocity, velocityBinSize, velocityHistogram.length)]++;
+
+            if (hasVelocity) {
+                float acceleration = (1000f * Math.abs(velocity - lastVelocity)) / dt; // in/s^2
+                accelerationHistogram[bin(acceleration, accelerationBinSize, accelerationHistogram.length)]++;
+            }
+
+            hasVelocity = true;
+            lastVelocity = velocity;
+            lastTime = time;
+            pendingDistance = 0f;
+        }
+
+        accumulatePoint(x, y);
+    }
+
+    /**
+     * Ends the current stroke and notifies the listener, if any
+     *
+     * @param time The event time (ms)
+     */
+    public void endStroke(long time) {
+        if (!inStroke) {
+            return;
+        }
+
+        penDownTime += Math.max(time - lastTime, 0);
+        lastStrokeEnd = time;
+        inStroke = false;
+        strokeCount++;
+
+        if (listener != null) {
+            listener.onStrokeFeatures(getFeatures());
+        }
+    }
+
+    /**
+     * Discards all accumulated features
+     */
+    public void reset() {
+        strokeCount = 0;
+        pointCount = 0;
+        penDownTime = 0;
+        penUpTime = 0;
+        length = 0f;
+        maxVelocity = 0f;
+        left = top = right = bottom = 0f;
+
+        Arrays.fill(velocityHistogram, 0);
+        Arrays.fill(accelerationHistogram, 0);
+
+        inStroke = false;
+        hasVelocity = false;
+        pendingDistance = 0f;
+        lastStrokeEnd = -1;
+    }
+
+    /**
+     * Returns a snapshot of the features accumulated so far
+     *
+     * @return The features
+     */
+    public InkFeatures getFeatures() {
+        return new InkFeatures(this);
+    }
+
+
+    //--------------------------------------
+    // Listener Interfaces
+    //--------------------------------------
+
+    /**
+     * Listener notified when a stroke ends
+     */
+    public interface FeatureListener {
+        /**
+         * Callback method when a stroke has ended
+         *
+         * @param features A snapshot of the features, including the stroke that just ended
+         */
+        void onStrokeFeatures(InkFeatures features);
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    void replay(InkStroke stroke) {
+        if (stroke.size == 0) {
+            return;
+        }
+
+        // accumulate without notifying, the stroke has already been reported
+        FeatureListener listener = this.listener;
+        this.listener = null;
+
+        startStroke(stroke.xs[0], stroke.ys[0], stroke.times[0]);
+        for (int i = 1; i < stroke.size; i++) {
+            addPoint(stroke.xs[i], stroke.ys[i], stroke.times[i]);
+        }
+        endStroke(stroke.times[stroke.size - 1]);
+
+        this.listener = listener;
+    }
+
+    void accumulatePoint(float x, float y) {
+        pointCount++;
+        lastX = x;
+        lastY = y;
+
+        left = Math.min(left, x);
+        right = Math.max(right, x);
+        top = Math.min(top, y);
+        bottom = Math.max(bottom, y);
+    }
+
+    static int bin(float value, float binSize, int binCount) {
+        return Math.min((int) (value / binSize), binCount - 1);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import android.graphics.RectF;
+
+/**
+ * An immutable snapshot of the dynamic features of a drawing, as computed by an {@link InkFeatureExtractor}
+ */
+@SuppressWarnings("unused")
+public final class InkFeatures {
+
+    final int strokeCount;
+    final int pointCount;
+    final long duration;
+    final long penDownTime;
+    final long penUpTime;
+    final float length;
+    final float maxVelocity;
+    final float averageVelocity;
+    final float left, top, right, bottom;
+    final float velocityBinSize;
+    final float accelerationBinSize;
+    final int[] velocityHistogram;
+    final int[] accelerationHistogram;
+
+
+    InkFeatures(InkFeatureExtractor extractor) {
+        strokeCount = extractor.strokeCount;
+        pointCount = extractor.pointCount;
+        duration = extractor.penDownTime + extractor.penUpTime;
+        penDownTime = extractor.penDownTime;
+        penUpTime = extractor.penUpTime;
+        length = extractor.length;
+        maxVelocity = extractor.maxVelocity;
+        averageVelocity = penDownTime > 0 ? (1000f * length) / (penDownTime * extractor.density) : 0f;
+        left = extractor.left;
+        top = extractor.top;
+        right = extractor.right;
+        bottom = extractor.bottom;
+        velocityBinSize = extractor.velocityBinSize;
+        accelerationBinSize = extractor.accelerationBinSize;
+        velocityHistogram = extractor.velocityHistogram.clone();
+        accelerationHistogram = extractor.accelerationHistogram.clone();
+    }
+
+    /**
+     * Returns the number of completed strokes
+     *
+     * @return The stroke count
+     */
+    public int getStrokeCount() {
+        return strokeCount;
+    }
+
+    /**
+     * Returns the number of points captured across all strokes
+     *
+     * @return The point count
+     */
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Returns the time from the start of the first stroke to the end of the last stroke
+     *
+     * @return The duration (in ms)
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the total time the pen was in contact with the view
+     *
+     * @return The pen-down time (in ms)
+     */
+    public long getPenDownTime() {
+        return penDownTime;
+    }
+
+    /**
+     * Returns the total time the pen was lifted between strokes
+     *
+     * @return The pen-up time (in ms)
+     */
+    public long getPenUpTime() {
+        return penUpTime;
+    }
+
+    /**
+     * Returns the total length of all strokes
+     *
+     * @return The length (in px)
+     */
+    public float getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the highest velocity measured between two consecutive points
+     *
+     * @return The max velocity (in in/s)
+     */
+    public float getMaxVelocity() {
+        return maxVelocity;
+    }
+
+    /**
+     * Returns the average velocity while the pen was down
+     *
+     * @return The average velocity (in in/s)
+     */
+    public float getAverageVelocity() {
+        return averageVelocity;
+    }
+
+    /**
+     * Returns the bounding box of all captured points.
+     * The box will be empty if no points have been captured
+     *
+     * @return The bounding box (in px)
+     */
+    public RectF getBounds() {
+        return pointCount > 0 ? new RectF(left, top, right, bottom) : new RectF();
+    }
+
+    /**
+     * Returns the width of each bin in the velocity histogram
+     *
+     * @return The bin size (in in/s)
+     */
+    public float getVelocityBinSize() {
+        return velocityBinSize;
+    }
+
+    /**
+     * Returns the velocity histogram. Bin i counts the segments with a velocity in [i * size, (i + 1) * size),
+     * with the last bin also counting every segment above its range
+     *
+     * @return A copy of the histogram
+     */
+    public int[] getVelocityHistogram() {
+        return velocityHistogram.clone();
+    }
+
+    /**
+     * Returns the width of each bin in the acceleration histogram
+     *
+     * @return The bin size (in in/s^2)
+     */
+    public float getAccelerationBinSize() {
+        return accelerationBinSize;
+    }
+
+    /**
+     * Returns the histogram of absolute acceleration. Bin i counts the segments with an acceleration in [i * size, (i + 1) * size),
+     * with the last bin also counting every segment above its range
+     *
+     * @return A copy of the histogram
+     */
+    public int[] getAccelerationHistogram() {
+        return accelerationHistogram.clone();
+    }
+}
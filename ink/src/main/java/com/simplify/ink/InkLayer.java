@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+/**
+ * A cached, view-sized bitmap layer. The bitmap is only allocated once something is drawn into it.
+ * <p>
+ * Layers rebuilt from a source (the background color and bitmap) use the invalid flag to be re-rasterized on the
+ * next draw after a resize or a change of source. Layers without a source keep what was drawn into them instead:
+ * the template is cropped on resize and never rebuilt, and the ink is erased
+ */
+class InkLayer {
+
+    Bitmap bitmap;
+    Canvas canvas;
+    int width;
+    int height;
+    boolean invalid = true;     // needs re-rasterizing from its source, see InkView.drawLayers
+
+
+    /**
+     * Sets the layer size, releasing the bitmap if the size changed
+     *
+     * @return True if the size changed
+     */
+    boolean setSize(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return false;
+        }
+
+        release();
+        this.width = width;
+        this.height = height;
+        invalid = true;
+
+        return true;
+    }
+
+    /**
+     * Sets the layer size, keeping what was drawn into it anchored at the top left corner.
+     * Anything outside the new size is cropped
+     *
+     * @return True if the size changed
+     */
+    boolean resize(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return false;
+        }
+
+        // detach the old bitmap so the size change does not recycle it
+        Bitmap old = bitmap;
+        bitmap = null;
+        canvas = null;
+        setSize(width, height);
+
+        if (old != null) {
+            Canvas canvas = getCanvas();
+            if (canvas != null) {
+                canvas.drawBitmap(old, 0, 0, null);
+                invalid = false;
+            }
+            old.recycle();
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the canvas for drawing into the layer, allocating the bitmap if needed
+     *
+     * @return The canvas, or null if the layer has no size yet
+     */
+    Canvas getCanvas() {
+        if (bitmap == null) {
+            if (width <= 0 || height <= 0) {
+                return null;
+            }
+
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            canvas = new Canvas(bitmap);
+        }
+
+        return canvas;
+    }
+
+    /**
+     * Replaces the layer bitmap with one of the same size
+     */
+    void setBitmap(Bitmap bitmap) {
+        release();
+        this.bitmap = bitmap;
+        canvas = new Canvas(bitmap);
+        invalid = false;
+    }
+
+    /**
+     * Erases the layer to transparent, keeping the bitmap allocated
+     */
+    void erase() {
+        if (bitmap != null) {
+            bitmap.eraseColor(0);
+        }
+    }
+
+    /**
+     * Draws the layer onto the canvas, if anything was drawn into it
+     */
+    void draw(Canvas canvas) {
+        if (bitmap != null) {
+            canvas.drawBitmap(bitmap, 0, 0, null);
+        }
+    }
+
+    /**
+     * Releases the bitmap
+     */
+    void release() {
+        if (bitmap != null) {
+            bitmap.recycle();
+        }
+
+        bitmap = null;
+        canvas = null;
+        invalid = true;
+    }
+}
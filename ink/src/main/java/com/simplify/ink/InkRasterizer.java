@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import java.util.Arrays;
+
+/**
+ * Renders stroke sets into ARGB pixel buffers, without any dependency on the Android framework.
+ * <p>
+ * The stroke geometry (smoothing, interpolation and stroke widths) is produced by the same code InkView uses on
+ * the device, then rasterized with anti-aliased round-capped lines. A rasterizer reuses its pixel buffer between
+ * calls of the same size, so it is not thread-safe: use one instance per thread.
+ */
+@SuppressWarnings("unused")
+public class InkRasterizer {
+
+    /**
+     * The largest output, in pixels, a rasterizer will allocate
+     */
+    public static final int MAX_PIXELS = 4096 * 4096;
+
+    final InkRenderer renderer;
+    final PixelTarget target;
+
+    int[] pixels = new int[0];
+    int width;
+    int height;
+    float scale;
+
+
+    public InkRasterizer() {
+        target = new PixelTarget();
+        renderer = new InkRenderer(1f, target);
+    }
+
+    /**
+     * Rasterizes a stroke set at its original size, on a transparent background
+     *
+     * @param strokeSet The stroke set
+     * @return The pixels, see {@link #rasterize(InkStrokeSet, float, int)}
+     */
+    public int[] rasterize(InkStrokeSet strokeSet) {
+        return rasterize(strokeSet, 1f, 0);
+    }
+
+    /**
+     * Rasterizes a stroke set.
+     * The returned array is owned by the rasterizer and will be overwritten by the next call with the same output size
+     *
+     * @param strokeSet       The stroke set
+     * @param scale           The scale applied to the original view size, ie. 0.25 for a quarter size thumbnail
+     * @param backgroundColor The background color (0 for transparent)
+     * @return The non-premultiplied ARGB pixels, row by row, sized {@link #getWidth()} x {@link #getHeight()}
+     * @throws IllegalArgumentException If the scale is not positive or the output exceeds {@link #MAX_PIXELS}
+     */
+    public int[] rasterize(InkStrokeSet strokeSet, float scale, int backgroundColor) {
+        if (!(scale > 0f)) {
+            throw new IllegalArgumentException("Scale must be positive");
+        }
+
+        // size the output in floating point, so large dimensions or scales cannot overflow
+        double scaledWidth = Math.max(Math.ceil((double) strokeSet.width * scale), 1);
+        double scaledHeight = Math.max(Math.ceil((double) strokeSet.height * scale), 1);
+        if (scaledWidth * scaledHeight > MAX_PIXELS) {
+            throw new IllegalArgumentException("Output of " + scaledWidth + " x " + scaledHeight + " exceeds " + MAX_PIXELS + " pixels");
+        }
+
+        // reuse the pixel buffer when the output size is unchanged
+        width = (int) scaledWidth;
+        height = (int) scaledHeight;
+        if (pixels.length != width * height) {
+            pixels = new int[width * height];
+        }
+        Arrays.fill(pixels, backgroundColor);
+
+        this.scale = scale;
+        renderer.density = strokeSet.density;
+        renderer.render(strokeSet);
+
+        return pixels;
+    }
+
+    /**
+     * Returns the width of the last rasterized output
+     *
+     * @return The width (in px)
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the last rasterized output
+     *
+     * @return The height (in px)
+     */
+    public int getHeight() {
+        return height;
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    void fillCapsule(float x1, float y1, float x2, float y2, float radius, int color) {
+        if ((color >>> 24) == 0 || !(radius > 0f)) {
+            return;
+        }
+
+        // clip bounds to the buffer
+        float pad = radius + 1f;
+        int minX = Math.max((int) Math.floor(Math.min(x1, x2) - pad), 0);
+        int maxX = Math.min((int) Math.ceil(Math.max(x1, x2) + pad), width - 1);
+        int minY = Math.max((int) Math.floor(Math.min(y1, y2) - pad), 0);
+        int maxY = Math.min((int) Math.ceil(Math.max(y1, y2) + pad), height - 1);
+
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float len2 = dx * dx + dy * dy;
+
+        // lines thinner than a pixel fade out instead of disappearing
+        float thinness = Math.min(radius * 2f, 1f);
+
+        for (int py = minY; py <= maxY; py++) {
+            float cy = py + 0.5f;
+            int row = py * width;
+
+            for (int px = minX; px <= maxX; px++) {
+                float cx = px + 0.5f;
+
+                // distance from the pixel center to the segment
+                float t = len2 > 0f ? ((cx - x1) * dx + (cy - y1) * dy) / len2 : 0f;
+                t = Math.max(Math.min(t, 1f), 0f);
+                float ex = x1 + t * dx - cx;
+                float ey = y1 + t * dy - cy;
+                float coverage = radius + 0.5f - (float) Math.sqrt(ex * ex + ey * ey);
+
+                if (coverage > 0f) {
+                    blend(row + px, color, Math.min(coverage, 1f) * thinness);
+                }
+            }
+        }
+    }
+
+    void blend(int index, int color, float coverage) {
+        float sa = ((color >>> 24) / 255f) * coverage;
+        int dst = pixels[index];
+        float da = (dst >>> 24) / 255f;
+        float k = da * (1f - sa);
+        float oa = sa + k;
+        if (oa <= 0f) {
+            return;
+        }
+
+        int r = Math.round((((color >> 16) & 0xFF) * sa + ((dst >> 16) & 0xFF) * k) / oa);
+        int g = Math.round((((color >> 8) & 0xFF) * sa + ((dst >> 8) & 0xFF) * k) / oa);
+        int b = Math.round(((color & 0xFF) * sa + (dst & 0xFF) * k) / oa);
+        int a = Math.round(oa * 255f);
+
+        pixels[index] = (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+
+    //--------------------------------------
+    // Util Classes
+    //--------------------------------------
+
+    class PixelTarget implements InkRenderer.Target {
+
+        @Override
+        public void drawDot(float x, float y, float width, int color) {
+            fillCapsule(x * scale, y * scale, x * scale, y * scale, width * scale / 2f, color);
+        }
+
+        @Override
+        public void drawLine(float x1, float y1, float x2, float y2, float width, int color) {
+            fillCapsule(x1 * scale, y1 * scale, x2 * scale, y2 * scale, width * scale / 2f, color);
+        }
+
+        @Override
+        public void onDrawn(float left, float top, float right, float bottom) {
+            // nothing to invalidate
+        }
+    }
+}
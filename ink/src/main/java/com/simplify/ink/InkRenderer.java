@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import java.util.ArrayList;
+
+import static com.simplify.ink.InkView.FILTER_RATIO_ACCELERATION_MODIFIER;
+import static com.simplify.ink.InkView.FILTER_RATIO_MIN;
+import static com.simplify.ink.InkView.FLAG_INTERPOLATION;
+import static com.simplify.ink.InkView.FLAG_RESPONSIVE_WIDTH;
+import static com.simplify.ink.InkView.THRESHOLD_ACCELERATION;
+import static com.simplify.ink.InkView.THRESHOLD_VELOCITY;
+
+/**
+ * Turns stroke points into smoothed, variable-width geometry.
+ * <p>
+ * This is the drawing algorithm of InkView, kept free of any View or Canvas dependency so the same
+ * geometry can be produced live on the device, when replaying a stroke set, or headless on a plain JVM.
+ * Geometry is emitted to a {@link Target}.
+ */
+class InkRenderer {
+
+    /**
+     * Receives the geometry produced by the renderer
+     */
+    interface Target {
+        /**
+         * Draws a filled dot
+         */
+        void drawDot(float x, float y, float width, int color);
+
+        /**
+         * Draws a line with round caps
+         */
+        void drawLine(float x1, float y1, float x2, float y2, float width, int color);
+
+        /**
+         * Called once a dot or segment has been drawn, with the bounds it covers
+         */
+        void onDrawn(float left, float top, float right, float bottom);
+    }
+
+    /**
+     * A target discarding all geometry, used to bring the renderer state up to date without drawing
+     */
+    static final Target NO_TARGET = new Target() {
+        @Override
+        public void drawDot(float x, float y, float width, int color) {
+        }
+
+        @Override
+        public void drawLine(float x1, float y1, float x2, float y2, float width, int color) {
+        }
+
+        @Override
+        public void onDrawn(float left, float top, float right, float bottom) {
+        }
+    };
+
+    // settings
+    float density;
+    Target target;
+
+    // current stroke settings
+    int flags;
+    int color;
+    float maxStrokeWidth;
+    float minStrokeWidth;
+    float smoothingRatio;
+    boolean inStroke;
+
+    // points
+    ArrayList<InkPoint> pointQueue = new ArrayList<>();
+    ArrayList<InkPoint> pointRecycle = new ArrayList<>();
+
+    // drawing state
+    float strokeWidth;
+    float dirtyLeft, dirtyTop, dirtyRight, dirtyBottom;
+
+
+    InkRenderer(float density, Target target) {
+        this.density = density;
+        this.target = target;
+    }
+
+    /**
+     * Starts a new stroke, using the settings of the given stroke
+     */
+    void beginStroke(InkStroke stroke) {
+        flags = stroke.flags;
+        color = stroke.color;
+        maxStrokeWidth = stroke.maxStrokeWidth;
+        minStrokeWidth = stroke.minStrokeWidth;
+        smoothingRatio = stroke.smoothingRatio;
+
+        // recycle any points left over from an unfinished stroke
+        pointRecycle.addAll(pointQueue);
+        pointQueue.clear();
+
+        inStroke = true;
+    }
+
+    /**
+     * Adds a point to the current stroke
+     *
+     * @return False if the point was ignored because it repeats the last point, or no stroke was started
+     */
+    boolean addPoint(float x, float y, long time) {
+        if (!inStroke) {
+            return false;
+        }
+
+        if (!pointQueue.isEmpty() && pointQueue.get(pointQueue.size() - 1).equals(x, y)) {
+            return false;
+        }
+
+        addPoint(getRecycledPoint(x, y, time));
+        return true;
+    }
+
+    /**
+     * Draws the remaining points and ends the current stroke
+     */
+    void endStroke() {
+        if (!inStroke) {
+            return;
+        }
+
+        // draw final points
+        if (pointQueue.size() == 1) {
+            draw(pointQueue.get(0));
+        } else if (pointQueue.size() == 2) {
+            pointQueue.get(1).findControlPoints(pointQueue.get(0), null);
+            draw(pointQueue.get(0), pointQueue.get(1));
+        }
+
+        // recycle remaining points
+        pointRecycle.addAll(pointQueue);
+        pointQueue.clear();
+
+        inStroke = false;
+    }
+
+    /**
+     * Draws a complete stroke
+     */
+    void render(InkStroke stroke) {
+        beginStroke(stroke);
+        for (int i = 0; i < stroke.size; i++) {
+            addPoint(stroke.xs[i], stroke.ys[i], stroke.times[i]);
+        }
+        endStroke();
+    }
+
+    /**
+     * Draws all strokes of a stroke set, starting from a reset state
+     */
+    void render(InkStrokeSet strokeSet) {
+        reset();
+        for (InkStroke stroke : strokeSet.strokes) {
+            render(stroke);
+        }
+    }
+
+    /**
+     * Discards the current stroke and any state carried over from previous strokes
+     */
+    void reset() {
+        pointQueue.clear();
+        pointRecycle.clear();
+        inStroke = false;
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    void addPoint(InkPoint p) {
+        pointQueue.add(p);
+
+        int queueSize = pointQueue.size();
+        if (queueSize == 1) {
+            // compute starting velocity
+            int recycleSize = pointRecycle.size();
+            p.velocity = (recycleSize > 0) ? pointRecycle.get(recycleSize - 1).velocityTo(p) / 2f : 0f;
+
+            // compute starting stroke width
+            strokeWidth = computeStrokeWidth(p.velocity);
+        } else if (queueSize == 2) {
+            InkPoint p0 = pointQueue.get(0);
+
+            // compute velocity for new point
+            p.velocity = p0.velocityTo(p);
+
+            // re-compute velocity for 1st point (predictive velocity)
+            p0.velocity = p0.velocity + p.velocity / 2f;
+
+            // find control points for first point
+            p0.findControlPoints(null, p);
+
+            // update starting stroke width
+            strokeWidth = computeStrokeWidth(p0.velocity);
+        } else if (queueSize == 3) {
+            InkPoint p0 = pointQueue.get(0);
+            InkPoint p1 = pointQueue.get(1);
+
+            // find control points for second point
+            p1.findControlPoints(p0, p);
+
+            // compute velocity for new point
+            p.velocity = p1.velocityTo(p);
+
+            // draw geometry between first 2 points
+            draw(p0, p1);
+
+            // recycle 1st point
+            pointRecycle.add(pointQueue.remove(0));
+        }
+    }
+
+    InkPoint getRecycledPoint(float x, float y, long time) {
+        if (pointRecycle.size() == 0) {
+            return new InkPoint(x, y, time);
+        }
+
+        return pointRecycle.remove(0).reset(x, y, time);
+    }
+
+    boolean hasFlags(int flags) {
+        return (this.flags & flags) > 0;
+    }
+
+    float computeStrokeWidth(float velocity) {
+        // compute responsive width
+        if (hasFlags(FLAG_RESPONSIVE_WIDTH)) {
+            return maxStrokeWidth - (maxStrokeWidth - minStrokeWidth) * Math.min(velocity / THRESHOLD_VELOCITY, 1f);
+        }
+
+        return maxStrokeWidth;
+    }
+
+    void draw(InkPoint p) {
+        // draw dot
+        target.drawDot(p.x, p.y, strokeWidth, color);
+
+        float r = strokeWidth / 2f;
+        target.onDrawn(p.x - r, p.y - r, p.x + r, p.y + r);
+    }
+
+    void draw(InkPoint p1, InkPoint p2) {
+        // init dirty rect
+        dirtyLeft = Math.min(p1.x, p2.x);
+        dirtyRight = Math.max(p1.x, p2.x);
+        dirtyTop = Math.min(p1.y, p2.y);
+        dirtyBottom = Math.max(p1.y, p2.y);
+
+        // adjust low-pass ratio from changing acceleration
+        // using comfortable range of 0.2 -> 0.3 approx.
+        float acceleration = Math.abs((p2.velocity - p1.velocity) / (p2.time - p1.time)); // in/s^2
+        float filterRatio = Math.min(FILTER_RATIO_MIN + FILTER_RATIO_ACCELERATION_MODIFIER * acceleration / THRESHOLD_ACCELERATION, 1f);
+
+        // compute new stroke width
+        float desiredWidth = computeStrokeWidth(p2.velocity);
+        float startWidth = strokeWidth;
+
+        float endWidth = filterRatio * desiredWidth + (1f - filterRatio) * startWidth;
+        float deltaWidth = endWidth - startWidth;
+
+        // interpolate bezier curve
+        if (hasFlags(FLAG_INTERPOLATION)) {
+
+            // compute # of steps to interpolate in the bezier curve
+            int steps = (int) (Math.sqrt(Math.pow(p2.x - p1.x, 2) + Math.pow(p2.y - p1.y, 2)) / 5);
+
+            // computational setup for differentials used to interpolate the bezier curve
+            float u = 1f / (steps + 1);
+            float uu = u * u;
+            float uuu = u * u * u;
+
+            float pre1 = 3f * u;
+            float pre2 = 3f * uu;
+            float pre3 = 6f * uu;
+            float pre4 = 6f * uuu;
+
+            float tmp1x = p1.x - p1.c2x * 2f + p2.c1x;
+            float tmp1y = p1.y - p1.c2y * 2f + p2.c1y;
+            float tmp2x = (p1.c2x - p2.c1x) * 3f - p1.x + p2.x;
+            float tmp2y = (p1.c2y - p2.c1y) * 3f - p1.y + p2.y;
+
+            float dx = (p1.c2x - p1.x) * pre1 + tmp1x * pre2 + tmp2x * uuu;
+            float dy = (p1.c2y - p1.y) * pre1 + tmp1y * pre2 + tmp2y * uuu;
+            float ddx = tmp1x * pre3 + tmp2x * pre4;
+            float ddy = tmp1y * pre3 + tmp2y * pre4;
+            float dddx = tmp2x * pre4;
+            float dddy = tmp2y * pre4;
+
+            float x1 = p1.x;
+            float y1 = p1.y;
+            float x2, y2;
+
+            // iterate over each step and draw the curve
+            int i = 0;
+            while (i++ < steps) {
+                x2 = x1 + dx;
+                y2 = y1 + dy;
+
+                strokeWidth = startWidth + deltaWidth * i / steps;
+                target.drawLine(x1, y1, x2, y2, strokeWidth, color);
+
+                x1 = x2;
+                y1 = y2;
+                dx += ddx;
+                dy += ddy;
+                ddx += dddx;
+                ddy += dddy;
+
+                // adjust dirty bounds to account for curve
+                dirtyLeft = Math.min(dirtyLeft, x1);
+                dirtyRight = Math.max(dirtyRight, x1);
+                dirtyTop = Math.min(dirtyTop, y1);
+                dirtyBottom = Math.max(dirtyBottom, y1);
+            }
+
+            strokeWidth = endWidth;
+            target.drawLine(x1, y1, p2.x, p2.y, strokeWidth, color);
+        }
+        // no interpolation, draw line between points
+        else {
+            target.drawLine(p1.x, p1.y, p2.x, p2.y, strokeWidth, color);
+            strokeWidth = endWidth;
+        }
+
+        float r = maxStrokeWidth / 2;
+        target.onDrawn(dirtyLeft - r, dirtyTop - r, dirtyRight + r, dirtyBottom + r);
+    }
+
+
+    //--------------------------------------
+    // Util Classes
+    //--------------------------------------
+
+    class InkPoint {
+
+        float x, y, c1x, c1y, c2x, c2y, velocity;
+        long time;
+
+
+        InkPoint(float x, float y, long time) {
+            reset(x, y, time);
+        }
+
+        InkPoint reset(float x, float y, long time) {
+            this.x = x;
+            this.y = y;
+            this.time = time;
+            velocity = 0f;
+
+            c1x = x;
+            c1y = y;
+            c2x = x;
+            c2y = y;
+
+            return this;
+        }
+
+        boolean equals(float x, float y) {
+            return this.x == x && this.y == y;
+        }
+
+        float distanceTo(InkPoint p) {
+            float dx = p.x - x;
+            float dy = p.y - y;
+
+            return (float) Math.sqrt(dx * dx + dy * dy);
+        }
+
+        float velocityTo(InkPoint p) {
+            return (1000f * distanceTo(p)) / (Math.abs(p.time - time) * density); // in/s
+        }
+
+        void findControlPoints(InkPoint prev, InkPoint next) {
+            if (prev == null && next == null) {
+                return;
+            }
+
+            float r = smoothingRatio;
+
+            // if start of a stroke, c2 control points half-way between this and next point
+            if (prev == null) {
+                c2x = x + r * (next.x - x) / 2f;
+                c2y = y + r * (next.y - y) / 2f;
+                return;
+            }
+
+            // if end of a stroke, c1 control points half-way between this and prev point
+            if (next == null) {
+                c1x = x + r * (prev.x - x) / 2f;
+                c1y = y + r * (prev.y - y) / 2f;
+                return;
+            }
+
+            // init control points
+            c1x = (x + prev.x) / 2f;
+            c1y = (y + prev.y) / 2f;
+            c2x = (x + next.x) / 2f;
+            c2y = (y + next.y) / 2f;
+
+            // calculate control offsets
+            float len1 = distanceTo(prev);
+            float len2 = distanceTo(next);
+            float k = len1 / (len1 + len2);
+            float xM = c1x + (c2x - c1x) * k;
+            float yM = c1y + (c2y - c1y) * k;
+            float dx = x - xM;
+            float dy = y - yM;
+
+            // inverse smoothing ratio
+            r = 1f - r;
+
+            // translate control points
+            c1x += dx + r * (xM - c1x);
+            c1y += dy + r * (yM - c1y);
+            c2x += dx + r * (xM - c2x);
+            c2y += dy + r * (yM - c2y);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import java.util.Arrays;
+
+/**
+ * A single stroke, from touch down to touch up, along with the settings it was drawn with
+ */
+@SuppressWarnings("unused")
+public final class InkStroke {
+
+    static final int INITIAL_CAPACITY = 32;
+
+    // settings
+    final int flags;
+    final int color;
+    final float minStrokeWidth;
+    final float maxStrokeWidth;
+    final float smoothingRatio;
+
+    // points
+    float[] xs;
+    float[] ys;
+    long[] times;
+    int size;
+
+
+    InkStroke(int flags, int color, float minStrokeWidth, float maxStrokeWidth, float smoothingRatio) {
+        this(flags, color, minStrokeWidth, maxStrokeWidth, smoothingRatio, INITIAL_CAPACITY);
+    }
+
+    InkStroke(int flags, int color, float minStrokeWidth, float maxStrokeWidth, float smoothingRatio, int capacity) {
+        this.flags = flags;
+        this.color = color;
+        this.minStrokeWidth = minStrokeWidth;
+        this.maxStrokeWidth = maxStrokeWidth;
+        this.smoothingRatio = smoothingRatio;
+
+        capacity = Math.max(capacity, 1);
+        xs = new float[capacity];
+        ys = new float[capacity];
+        times = new long[capacity];
+    }
+
+    /**
+     * Returns the feature flags the stroke was drawn with
+     *
+     * @return A bit mask of flags
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Returns the color the stroke was drawn with
+     *
+     * @return The color value
+     */
+    public int getColor() {
+        return color;
+    }
+
+    /**
+     * Returns the minimum stroke width
+     *
+     * @return The width (in px)
+     */
+    public float getMinStrokeWidth() {
+        return minStrokeWidth;
+    }
+
+    /**
+     * Returns the maximum stroke width
+     *
+     * @return The width (in px)
+     */
+    public float getMaxStrokeWidth() {
+        return maxStrokeWidth;
+    }
+
+    /**
+     * Returns the smoothing ratio
+     *
+     * @return The smoothing ratio
+     */
+    public float getSmoothingRatio() {
+        return smoothingRatio;
+    }
+
+    /**
+     * Returns the number of points in the stroke
+     *
+     * @return The point count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the x coordinate of a point
+     *
+     * @param index The point index
+     * @return The x coordinate (in px)
+     */
+    public float getX(int index) {
+        checkIndex(index);
+        return xs[index];
+    }
+
+    /**
+     * Returns the y coordinate of a point
+     *
+     * @param index The point index
+     * @return The y coordinate (in px)
+     */
+    public float getY(int index) {
+        checkIndex(index);
+        return ys[index];
+    }
+
+    /**
+     * Returns the event time of a point
+     *
+     * @param index The point index
+     * @return The event time (in ms)
+     */
+    public long getTime(int index) {
+        checkIndex(index);
+        return times[index];
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    void add(float x, float y, long time) {
+        if (size == xs.length) {
+            int capacity = size * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            times = Arrays.copyOf(times, capacity);
+        }
+
+        xs[size] = x;
+        ys[size] = y;
+        times[size] = time;
+        size++;
+    }
+
+    boolean hasSameSettings(InkStroke s) {
+        return s != null
+                && flags == s.flags
+                && color == s.color
+                && Float.floatToIntBits(minStrokeWidth) == Float.floatToIntBits(s.minStrokeWidth)
+                && Float.floatToIntBits(maxStrokeWidth) == Float.floatToIntBits(s.maxStrokeWidth)
+                && Float.floatToIntBits(smoothingRatio) == Float.floatToIntBits(s.smoothingRatio);
+    }
+
+    InkStroke copy() {
+        InkStroke s = new InkStroke(flags, color, minStrokeWidth, maxStrokeWidth, smoothingRatio, size);
+        System.arraycopy(xs, 0, s.xs, 0, size);
+        System.arraycopy(ys, 0, s.ys, 0, size);
+        System.arraycopy(times, 0, s.times, 0, size);
+        s.size = size;
+
+        return s;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
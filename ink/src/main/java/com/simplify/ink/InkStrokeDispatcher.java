@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Delivers stroke events to {@link InkView.StrokeListener}s without blocking the touch path.
+ * <p>
+ * Appended points are collected into batches, handed off at most once per interval, and every event is queued
+ * and delivered in order on the executor (or posted to the main thread). Events are only built when listeners
+ * are registered, and each batch is handed off as-is, so no point data is copied.
+ */
+class InkStrokeDispatcher {
+
+    static final int BATCH_CAPACITY = 16;
+
+    final CopyOnWriteArrayList<InkView.StrokeListener> listeners = new CopyOnWriteArrayList<>();
+    Executor executor;
+    final Handler mainHandler = new Handler(Looper.getMainLooper());
+    long interval;
+
+    // batching, touched on the UI thread only
+    InkStroke batch;
+    long lastFlushTime;
+
+    // serial delivery
+    final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    boolean scheduled;
+    final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                Runnable event;
+                synchronized (queue) {
+                    event = queue.poll();
+                    if (event == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+
+                boolean delivered = false;
+                try {
+                    event.run();
+                    delivered = true;
+                } finally {
+                    // a throwing listener must not leave the queue scheduled forever, the rest gets a new drain
+                    if (!delivered) {
+                        reschedule();
+                    }
+                }
+            }
+        }
+    };
+
+
+    InkStrokeDispatcher(long interval) {
+        this.interval = interval;
+    }
+
+    boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    void startStroke(InkStroke stroke, float x, float y, long time) {
+        if (!hasListeners()) {
+            return;
+        }
+
+        // the first point travels with the start event
+        final InkStroke start = newBatch(stroke);
+        start.add(x, y, time);
+
+        batch = null;
+        lastFlushTime = time;
+
+        dispatch(new Runnable() {
+            @Override
+            public void run() {
+                for (InkView.StrokeListener listener : listeners) {
+                    listener.onStrokeStart(start);
+                }
+            }
+        });
+    }
+
+    void addPoint(InkStroke stroke, float x, float y, long time) {
+        if (!hasListeners()) {
+            return;
+        }
+
+        if (batch == null) {
+            batch = newBatch(stroke);
+        }
+        batch.add(x, y, time);
+
+        // throttle on event time, avoiding a clock read per point
+        if (time - lastFlushTime >= interval) {
+            flush();
+            lastFlushTime = time;
+        }
+    }
+
+    void endStroke(final InkStroke stroke) {
+        if (!hasListeners()) {
+            batch = null;
+            return;
+        }
+
+        flush();
+
+        // the finished stroke is never modified again, so it is handed off without a copy
+        dispatch(new Runnable() {
+            @Override
+            public void run() {
+                for (InkView.StrokeListener listener : listeners) {
+                    listener.onStrokeEnd(stroke);
+                }
+            }
+        });
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    InkStroke newBatch(InkStroke stroke) {
+        return new InkStroke(stroke.flags, stroke.color, stroke.minStrokeWidth, stroke.maxStrokeWidth, stroke.smoothingRatio, BATCH_CAPACITY);
+    }
+
+    void flush() {
+        if (batch == null) {
+            return;
+        }
+
+        final InkStroke points = batch;
+        batch = null;
+
+        dispatch(new Runnable() {
+            @Override
+            public void run() {
+                for (InkView.StrokeListener listener : listeners) {
+                    listener.onStrokePoints(points);
+                }
+            }
+        });
+    }
+
+    void dispatch(Runnable event) {
+        synchronized (queue) {
+            queue.add(event);
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+
+        schedule();
+    }
+
+    void reschedule() {
+        synchronized (queue) {
+            if (queue.isEmpty()) {
+                scheduled = false;
+                return;
+            }
+        }
+
+        schedule();
+    }
+
+    void schedule() {
+        Executor executor = this.executor;
+        if (executor != null) {
+            try {
+                executor.execute(drain);
+                return;
+            } catch (RejectedExecutionException e) {
+                // the executor is shut down or saturated, deliver on the main thread instead
+            }
+        }
+
+        if (!mainHandler.post(drain)) {
+            // the main looper is exiting, drop the pending events rather than never scheduling again
+            synchronized (queue) {
+                queue.clear();
+                scheduled = false;
+            }
+        }
+    }
+}
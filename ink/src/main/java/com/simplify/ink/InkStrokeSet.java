@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The strokes of a drawing, along with the view dimensions and screen density they were captured with.
+ * <p>
+ * A stroke set can be encoded into a compact byte array, where coordinates are quantized to
+ * 1/{@value #QUANTIZATION} px and every value is stored as a variable-length delta from the previous point.
+ * Since InkView quantizes points as they are captured, replaying a decoded stroke set produces exactly the
+ * same geometry as the on-device rendering.
+ */
+@SuppressWarnings("unused")
+public final class InkStrokeSet {
+
+    /**
+     * The number of steps per pixel that coordinates are quantized to
+     */
+    public static final int QUANTIZATION = 16;
+
+    /**
+     * The largest view width or height a stroke set can be decoded with
+     */
+    public static final int MAX_DIMENSION = 32768;
+
+    static final int MAGIC = 0x494B; // "IK"
+    static final int VERSION = 1;
+
+    final int width;
+    final int height;
+    final float density;
+    final ArrayList<InkStroke> strokes;
+
+
+    InkStrokeSet(int width, int height, float density) {
+        this(width, height, density, new ArrayList<InkStroke>());
+    }
+
+    InkStrokeSet(int width, int height, float density, ArrayList<InkStroke> strokes) {
+        this.width = width;
+        this.height = height;
+        this.density = density;
+        this.strokes = strokes;
+    }
+
+    /**
+     * Returns the width of the view the strokes were captured on
+     *
+     * @return The width (in px)
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the view the strokes were captured on
+     *
+     * @return The height (in px)
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the screen density the strokes were captured with
+     *
+     * @return The density (in dpi)
+     */
+    public float getDensity() {
+        return density;
+    }
+
+    /**
+     * Returns the strokes, in the order they were drawn
+     *
+     * @return An unmodifiable list of strokes
+     */
+    public List<InkStroke> getStrokes() {
+        return Collections.unmodifiableList(strokes);
+    }
+
+    /**
+     * Checks if the stroke set contains no strokes
+     *
+     * @return True or False
+     */
+    public boolean isEmpty() {
+        return strokes.isEmpty();
+    }
+
+    /**
+     * Encodes the stroke set into its compact binary representation
+     *
+     * @return The encoded bytes
+     */
+    public byte[] toByteArray() {
+        Writer w = new Writer(64 + strokes.size() * 24);
+
+        // header
+        w.writeVarInt(MAGIC);
+        w.writeVarInt(VERSION);
+        w.writeVarInt(width);
+        w.writeVarInt(height);
+        w.writeFloat(density);
+        w.writeVarInt(strokes.size());
+
+        // strokes, with settings only written when they differ from the previous stroke
+        InkStroke prev = null;
+        int lastX = 0, lastY = 0;
+        long lastTime = 0;
+        for (InkStroke s : strokes) {
+            if (s.hasSameSettings(prev)) {
+                w.writeByte(0);
+            } else {
+                w.writeByte(1);
+                w.writeVarInt(s.flags);
+                w.writeInt(s.color);
+                w.writeFloat(s.minStrokeWidth);
+                w.writeFloat(s.maxStrokeWidth);
+                w.writeFloat(s.smoothingRatio);
+            }
+
+            w.writeVarInt(s.size);
+            for (int i = 0; i < s.size; i++) {
+                int x = Math.round(s.xs[i] * QUANTIZATION);
+                int y = Math.round(s.ys[i] * QUANTIZATION);
+
+                w.writeVarLong(zigzag(x - lastX));
+                w.writeVarLong(zigzag(y - lastY));
+                w.writeVarLong(zigzag(s.times[i] - lastTime));
+
+                lastX = x;
+                lastY = y;
+                lastTime = s.times[i];
+            }
+
+            prev = s;
+        }
+
+        return w.toByteArray();
+    }
+
+    /**
+     * Decodes a stroke set previously encoded with {@link #toByteArray()}
+     *
+     * @param bytes The encoded bytes
+     * @return The stroke set
+     * @throws IllegalArgumentException If the bytes are not a valid encoded stroke set, or its dimensions are not
+     *                                  between 1 and {@link #MAX_DIMENSION}
+     */
+    public static InkStrokeSet fromByteArray(byte[] bytes) {
+        Reader r = new Reader(bytes);
+
+        // header
+        if (r.readVarInt() != MAGIC) {
+            throw new IllegalArgumentException("Not an encoded stroke set");
+        }
+        int version = r.readVarInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported stroke set version: " + version);
+        }
+
+        int width = r.readVarInt();
+        int height = r.readVarInt();
+        if (width < 1 || height < 1 || width > MAX_DIMENSION || height > MAX_DIMENSION) {
+            throw new IllegalArgumentException("Invalid dimensions: " + width + " x " + height);
+        }
+        float density = r.readFloat();
+        if (!(density > 0f) || Float.isInfinite(density)) {
+            throw new IllegalArgumentException("Invalid density: " + density);
+        }
+        int strokeCount = r.readVarInt();
+
+        // each stroke takes at least 2 bytes, reject counts the input cannot hold
+        if (strokeCount < 0 || strokeCount > bytes.length / 2) {
+            throw new IllegalArgumentException("Invalid stroke count: " + strokeCount);
+        }
+
+        ArrayList<InkStroke> strokes = new ArrayList<>(strokeCount);
+        InkStroke prev = null;
+        int lastX = 0, lastY = 0;
+        long lastTime = 0;
+        for (int n = 0; n < strokeCount; n++) {
+            int flags, color;
+            float minStrokeWidth, maxStrokeWidth, smoothingRatio;
+            if (r.readByte() == 0) {
+                if (prev == null) {
+                    throw new IllegalArgumentException("Missing settings for first stroke");
+                }
+                flags = prev.flags;
+                color = prev.color;
+                minStrokeWidth = prev.minStrokeWidth;
+                maxStrokeWidth = prev.maxStrokeWidth;
+                smoothingRatio = prev.smoothingRatio;
+            } else {
+                flags = r.readVarInt();
+                color = r.readInt();
+                minStrokeWidth = r.readFloat();
+                maxStrokeWidth = r.readFloat();
+                smoothingRatio = r.readFloat();
+            }
+
+            // each point takes at least 3 bytes
+            int size = r.readVarInt();
+            if (size < 0 || size > r.remaining() / 3) {
+                throw new IllegalArgumentException("Invalid point count: " + size);
+            }
+
+            InkStroke s = new InkStroke(flags, color, minStrokeWidth, maxStrokeWidth, smoothingRatio, size);
+            for (int i = 0; i < size; i++) {
+                lastX += (int) unzigzag(r.readVarLong());
+                lastY += (int) unzigzag(r.readVarLong());
+                lastTime += unzigzag(r.readVarLong());
+
+                s.add((float) lastX / QUANTIZATION, (float) lastY / QUANTIZATION, lastTime);
+            }
+
+            strokes.add(s);
+            prev = s;
+        }
+
+        return new InkStrokeSet(width, height, density, strokes);
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    static float quantize(float value) {
+        return (float) Math.round(value * QUANTIZATION) / QUANTIZATION;
+    }
+
+    InkStrokeSet copy() {
+        ArrayList<InkStroke> copies = new ArrayList<>(strokes.size());
+        for (InkStroke s : strokes) {
+            copies.add(s.copy());
+        }
+
+        return new InkStrokeSet(width, height, density, copies);
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+
+    //--------------------------------------
+    // Util Classes
+    //--------------------------------------
+
+    static final class Writer {
+
+        byte[] buf;
+        int pos;
+
+
+        Writer(int capacity) {
+            buf = new byte[Math.max(capacity, 16)];
+        }
+
+        void ensure(int n) {
+            if (pos + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeInt(int v) {
+            ensure(4);
+            buf[pos++] = (byte) (v >>> 24);
+            buf[pos++] = (byte) (v >>> 16);
+            buf[pos++] = (byte) (v >>> 8);
+            buf[pos++] = (byte) v;
+        }
+
+        void writeFloat(float v) {
+            writeInt(Float.floatToIntBits(v));
+        }
+
+        void writeVarInt(int v) {
+            writeVarLong(v & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    static final class Reader {
+
+        final byte[] buf;
+        int pos;
+
+
+        Reader(byte[] buf) {
+            if (buf == null) {
+                throw new IllegalArgumentException("Encoded stroke set is null");
+            }
+            this.buf = buf;
+        }
+
+        int remaining() {
+            return buf.length - pos;
+        }
+
+        int readByte() {
+            if (pos >= buf.length) {
+                throw new IllegalArgumentException("Truncated stroke set");
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        int readInt() {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+
+        float readFloat() {
+            return Float.intBitsToFloat(readInt());
+        }
+
+        int readVarInt() {
+            long v = readVarLong();
+            if ((v & ~0xFFFFFFFFL) != 0) {
+                throw new IllegalArgumentException("Malformed stroke set");
+            }
+            return (int) v;
+        }
+
+        long readVarLong() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return v;
+                }
+            }
+            throw new IllegalArgumentException("Malformed stroke set");
+        }
+    }
+}
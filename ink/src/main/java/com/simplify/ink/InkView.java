@@ -22,6 +22,12 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.RectF;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.util.TypedValue;
@@ -29,6 +35,8 @@ import android.view.MotionEvent;
 import android.view.View;
 
 import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 @SuppressWarnings("unused")
 public class InkView extends View {
@@ -50,6 +58,11 @@ public class InkView extends View {
      */
     public static final float DEFAULT_SMOOTHING_RATIO = 0.75f;
 
+    /**
+     * The default minimum interval between two batches of points delivered to stroke listeners (ms)
+     */
+    public static final long DEFAULT_STROKE_EVENT_INTERVAL = 50;
+
     /**
      * When this flag is added, paths will be drawn as cubic-bezier curves
      */
@@ -61,6 +74,13 @@ public class InkView extends View {
      */
     public static final int FLAG_RESPONSIVE_WIDTH = 1 << 1;
 
+    /**
+     * When present and the view is hardware accelerated (API 29+), each finished stroke is recorded once into a
+     * RenderNode and drawn by the GPU, instead of being rasterized in software into a bitmap that is uploaded on every
+     * frame. Ignored on older versions
+     */
+    public static final int FLAG_DIRECT_RENDERING = 1 << 2;
+
     /**
      * When present, the data points for the path are drawn with their respective control points
      *
@@ -83,18 +103,34 @@ public class InkView extends View {
     float maxStrokeWidth;
     float minStrokeWidth;
     float smoothingRatio;
-
-    // points
-    ArrayList<InkPoint> pointQueue = new ArrayList<>();
-    ArrayList<InkPoint> pointRecycle = new ArrayList<>();
+    int color;
+
+    // strokes
+    InkRenderer renderer;
+    InkCanvasTarget target;
+    InkDisplayList displayList;
+    InkStrokeSet strokeSet;
+    InkStroke currentStroke;
+
+    // layers, composited bottom to top
+    InkLayer backgroundLayer = new InkLayer();
+    InkLayer templateLayer = new InkLayer();
+    InkLayer inkLayer = new InkLayer();
+    int backgroundColor;
+    Bitmap backgroundBitmap;
+    ArrayList<TemplateStamp> pendingStamps = new ArrayList<>();
+
+    // state restore
+    InkStrokeSet pendingStrokes;
+    int restoreGeneration;
+    Executor restoreExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+    final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     // misc
     float density;
-    Bitmap bitmap;
-    Canvas canvas;
-    Paint paint;
-    RectF dirty;
-    ArrayList<InkListener> listeners = new ArrayList<>();
+    CopyOnWriteArrayList<InkListener> listeners = new CopyOnWriteArrayList<>();
+    InkStrokeDispatcher strokeDispatcher = new InkStrokeDispatcher(DEFAULT_STROKE_EVENT_INTERVAL);
+    InkFeatureExtractor featureExtractor;
 
     private boolean isEmpty;
 
@@ -131,10 +167,14 @@ public class InkView extends View {
         DisplayMetrics metrics = getResources().getDisplayMetrics();
         density = (metrics.xdpi + metrics.ydpi) / 2f;
 
-        // init paint
-        paint = new Paint();
-        paint.setStrokeCap(Paint.Cap.ROUND);
-        paint.setAntiAlias(true);
+        // init feature extractor
+        featureExtractor = new InkFeatureExtractor(density);
+
+        // init renderer, drawing into the bitmap cache once it exists
+        target = new InkCanvasTarget(null, this);
+        displayList = new InkDisplayList(this);
+        renderer = new InkRenderer(density, target);
+        strokeSet = new InkStrokeSet(0, 0, density);
 
         // apply default settings
         setColor(DEFAULT_STROKE_COLOR);
@@ -142,9 +182,6 @@ public class InkView extends View {
         setMinStrokeWidth(DEFAULT_MIN_STROKE_WIDTH);
         setSmoothingRatio(DEFAULT_SMOOTHING_RATIO);
 
-        // init dirty rect
-        dirty = new RectF();
-
         isEmpty = true;
     }
 
@@ -157,16 +194,85 @@ public class InkView extends View {
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
 
+        // the background is re-rasterized on next draw, the template is kept and ink is lost
+        backgroundLayer.setSize(w, h);
+        templateLayer.resize(w, h);
+        inkLayer.setSize(w, h);
+
+        // restored strokes waiting for a size are rasterized now, or again if the size changed meanwhile
+        InkStrokeSet pending = pendingStrokes;
         clear();
+
+        if (pending != null) {
+            restoreStrokes(pending);
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+
+        // save the compact strokes rather than the bitmap, which would not fit in a transaction.
+        // restored strokes still waiting for a size are not part of the stroke set yet
+        InkStrokeSet strokes = (strokeSet.isEmpty() && pendingStrokes != null) ? pendingStrokes : strokeSet;
+        if (!strokes.isEmpty()) {
+            state.strokes = strokes.toByteArray();
+        }
+
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+
+        if (savedState.strokes != null) {
+            try {
+                restoreStrokes(InkStrokeSet.fromByteArray(savedState.strokes));
+            } catch (IllegalArgumentException e) {
+                // ignore unreadable state, the view simply starts empty
+            }
+        }
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent e) {
         int action = e.getAction();
         isEmpty = false;
-        // on down, initialize stroke point
+
+        // quantize coordinates so that recorded strokes replay exactly as drawn
+        float x = InkStrokeSet.quantize(e.getX());
+        float y = InkStrokeSet.quantize(e.getY());
+        long time = e.getEventTime();
+
+        // on down, start a new stroke
         if (action == MotionEvent.ACTION_DOWN) {
-            addPoint(getRecycledPoint(e.getX(), e.getY(), e.getEventTime()));
+            currentStroke = new InkStroke(flags, color, minStrokeWidth, maxStrokeWidth, smoothingRatio);
+            strokeSet.strokes.add(currentStroke);
+
+            // draw into display lists, or into the ink bitmap which is only allocated when first needed
+            if (isDirectRendering()) {
+                renderer.target = displayList;
+            } else {
+                target.canvas = inkLayer.getCanvas();
+                renderer.target = target;
+
+                // strokes drawn directly before the flag was removed move into the bitmap, so new ones stay on top
+                if (!displayList.isEmpty() && target.canvas != null) {
+                    displayList.flatten(target.canvas);
+                }
+            }
+            renderer.beginStroke(currentStroke);
+
+            addPoint(x, y, time);
+            featureExtractor.startStroke(x, y, time);
+            strokeDispatcher.startStroke(currentStroke, x, y, time);
 
             // notify listeners of sign
             for (InkListener listener : listeners) {
@@ -176,24 +282,23 @@ public class InkView extends View {
 
         // on move, add next point
         else if (action == MotionEvent.ACTION_MOVE) {
-            if (!pointQueue.get(pointQueue.size() - 1).equals(e.getX(), e.getY())) {
-                addPoint(getRecycledPoint(e.getX(), e.getY(), e.getEventTime()));
+            if (addPoint(x, y, time)) {
+                featureExtractor.addPoint(x, y, time);
+                strokeDispatcher.addPoint(currentStroke, x, y, time);
             }
         }
 
-        // on up, draw remaining queue
-        if (action == MotionEvent.ACTION_UP) {
-            // draw final points
-            if (pointQueue.size() == 1) {
-                draw(pointQueue.get(0));
-            } else if (pointQueue.size() == 2) {
-                pointQueue.get(1).findControlPoints(pointQueue.get(0), null);
-                draw(pointQueue.get(0), pointQueue.get(1));
+        // on up or cancel, draw remaining queue. A cancelled gesture keeps the points drawn so far
+        if ((action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) && currentStroke != null) {
+            renderer.endStroke();
+            if (renderer.target == displayList) {
+                displayList.commit(getWidth(), getHeight());
             }
+            strokeDispatcher.endStroke(currentStroke);
+            currentStroke = null;
 
-            // recycle remaining points
-            pointRecycle.addAll(pointQueue);
-            pointQueue.clear();
+            // finalize stroke features
+            featureExtractor.endStroke(time);
         }
 
         return true;
@@ -201,8 +306,8 @@ public class InkView extends View {
 
     @Override
     protected void onDraw(Canvas canvas) {
-        // simply paint the bitmap on the canvas
-        canvas.drawBitmap(bitmap, 0, 0, null);
+        // composite the cached layers
+        drawLayers(canvas);
 
         super.onDraw(canvas);
     }
@@ -290,9 +395,7 @@ public class InkView extends View {
      * @param listener The listener
      */
     public void addListener(InkListener listener) {
-        if (!listeners.contains(listener)) {
-            listeners.add(listener);
-        }
+        listeners.addIfAbsent(listener);
     }
 
     /**
@@ -326,13 +429,72 @@ public class InkView extends View {
         removeListener(listener);
     }
 
+    /**
+     * Adds a stroke listener on the view.
+     * Stroke events are delivered in order, after the touch event has been handled, on the main thread
+     * or on the executor set with {@link #setStrokeListenerExecutor(Executor)}
+     *
+     * @param listener The listener
+     */
+    public void addStrokeListener(StrokeListener listener) {
+        strokeDispatcher.listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * Removes the stroke listener from the view
+     *
+     * @param listener The listener
+     */
+    public void removeStrokeListener(StrokeListener listener) {
+        strokeDispatcher.listeners.remove(listener);
+    }
+
+    /**
+     * Sets the executor stroke events are delivered on. Events are still delivered one at a time, in order,
+     * even if the executor runs tasks concurrently. If the executor rejects them, they are delivered on the main thread
+     *
+     * @param executor The executor, or null to deliver on the main thread
+     */
+    public void setStrokeListenerExecutor(Executor executor) {
+        strokeDispatcher.executor = executor;
+    }
+
+    /**
+     * Sets the minimum interval between two batches of points delivered to stroke listeners.
+     * Points are always flushed when the stroke ends
+     *
+     * @param interval The interval (in ms), or 0 to deliver every point as it arrives
+     */
+    public void setStrokeEventInterval(long interval) {
+        strokeDispatcher.interval = Math.max(interval, 0);
+    }
+
+    /**
+     * Returns the extractor computing the dynamic features of the drawing as it is captured.
+     * Set a {@link InkFeatureExtractor.FeatureListener} on it to receive a snapshot every time a stroke ends
+     *
+     * @return The feature extractor
+     */
+    public InkFeatureExtractor getFeatureExtractor() {
+        return featureExtractor;
+    }
+
+    /**
+     * Returns a snapshot of the dynamic features of the current drawing
+     *
+     * @return The features
+     */
+    public InkFeatures getFeatures() {
+        return featureExtractor.getFeatures();
+    }
+
     /**
      * Sets the stroke color
      *
      * @param color The color value
      */
     public void setColor(int color) {
-        paint.setColor(color);
+        this.color = color;
     }
 
     /**
@@ -382,17 +544,31 @@ public class InkView extends View {
     }
 
     /**
-     * Clears the view
+     * Clears the view.
+     * A stroke in progress is ended for stroke listeners, and the rest of its gesture is ignored
      */
     public void clear() {
-        // clean up existing bitmap
-        if (bitmap != null) {
-            bitmap.recycle();
+        // erase the ink layer only, background and template are kept
+        inkLayer.setSize(getWidth(), getHeight());
+        inkLayer.erase();
+        displayList.clear();
+
+        // cancel any pending restore
+        pendingStrokes = null;
+        restoreGeneration++;
+
+        // end a stroke in progress, so stroke listeners still receive its buffered points and its end
+        if (currentStroke != null) {
+            strokeDispatcher.endStroke(currentStroke);
+            currentStroke = null;
         }
 
-        // init bitmap cache
-        bitmap = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
-        canvas = new Canvas(bitmap);
+        // discard recorded strokes
+        renderer.reset();
+        strokeSet = new InkStrokeSet(getWidth(), getHeight(), density);
+
+        // reset stroke features
+        featureExtractor.reset();
 
         // notify listeners
         for (InkListener listener : listeners) {
@@ -428,14 +604,28 @@ public class InkView extends View {
             bitmapCanvas.drawColor(backgroundColor);
         }
 
-        // draw bitmap
-        bitmapCanvas.drawBitmap(this.bitmap, 0, 0, null);
+        // draw layers, including restored strokes still being rasterized in the background
+        drawLayers(bitmapCanvas, true);
 
         return bitmap;
     }
 
     /**
-     * Draws a bitmap to the view, with its top left corner at (x,y)
+     * Returns the strokes drawn since the view was last cleared.
+     * The stroke set can be encoded with {@link InkStrokeSet#toByteArray()} and rendered elsewhere,
+     * for example with an {@link InkBatchRasterizer}. Bitmaps drawn with {@link #drawBitmap} are not included.
+     * Before the view has been laid out, the stroke set is empty and sized 0 x 0, which cannot be decoded
+     *
+     * @return A copy of the strokes
+     */
+    public InkStrokeSet getStrokes() {
+        return strokeSet.copy();
+    }
+
+    /**
+     * Draws a bitmap to the template layer, with its top left corner at (x,y).
+     * The template sits below the ink and is kept when the view is cleared or resized.
+     * The bitmap is not retained and may be recycled as soon as this method returns
      *
      * @param bitmap The bitmap to draw
      * @param x      The destination x coordinate of the bitmap in relation to the view
@@ -443,7 +633,60 @@ public class InkView extends View {
      * @param paint  The paint used to draw the bitmap (may be null)
      */
     public void drawBitmap(Bitmap bitmap, float x, float y, Paint paint) {
-        canvas.drawBitmap(bitmap, x, y, paint);
+        Canvas canvas = templateLayer.getCanvas();
+        if (canvas != null) {
+            canvas.drawBitmap(bitmap, x, y, paint);
+        } else {
+            // no size yet, keep a private copy until the layer can be allocated
+            Bitmap copy = copyBitmap(bitmap);
+            if (copy != null) {
+                pendingStamps.add(new TemplateStamp(copy, x, y, paint));
+            }
+        }
+
+        invalidate();
+    }
+
+    /**
+     * Removes all bitmaps drawn to the template layer
+     */
+    public void clearTemplate() {
+        for (TemplateStamp stamp : pendingStamps) {
+            stamp.bitmap.recycle();
+        }
+        pendingStamps.clear();
+        templateLayer.release();
+
+        invalidate();
+    }
+
+    /**
+     * Sets the color of the background layer, below the template and the ink.
+     * Unlike the view background, it is included in {@link #getBitmap()}
+     *
+     * @param color The color value (0 for transparent)
+     */
+    public void setBackgroundLayerColor(int color) {
+        backgroundColor = color;
+        backgroundLayer.invalid = true;
+
+        invalidate();
+    }
+
+    /**
+     * Sets a bitmap on the background layer, scaled to fill the view and drawn over the background layer color.
+     * Unlike the view background, it is included in {@link #getBitmap()}.
+     * A copy of the bitmap is kept to re-draw the layer when the view is resized, so the bitmap may be recycled
+     * as soon as this method returns
+     *
+     * @param bitmap The bitmap (may be null to remove it)
+     */
+    public void setBackgroundLayerBitmap(Bitmap bitmap) {
+        if (backgroundBitmap != null) {
+            backgroundBitmap.recycle();
+        }
+        backgroundBitmap = (bitmap != null) ? copyBitmap(bitmap) : null;
+        backgroundLayer.release();
 
         invalidate();
     }
@@ -469,6 +712,33 @@ public class InkView extends View {
         void onInkDraw();
     }
 
+    /**
+     * Listener for stroke level events, delivered off the touch path.
+     * The strokes passed to the callbacks are never modified afterwards, so they can be kept or handed to other threads
+     */
+    public interface StrokeListener {
+        /**
+         * Callback method when a stroke starts
+         *
+         * @param stroke The stroke settings and its first point
+         */
+        void onStrokeStart(InkStroke stroke);
+
+        /**
+         * Callback method when a batch of points has been appended to the current stroke
+         *
+         * @param points The stroke settings and the appended points
+         */
+        void onStrokePoints(InkStroke points);
+
+        /**
+         * Callback method when a stroke ends
+         *
+         * @param stroke The complete stroke
+         */
+        void onStrokeEnd(InkStroke stroke);
+    }
+
 
     //--------------------------------------
     // Util
@@ -478,161 +748,120 @@ public class InkView extends View {
         return density;
     }
 
-    void addPoint(InkPoint p) {
-        pointQueue.add(p);
-
-        int queueSize = pointQueue.size();
-        if (queueSize == 1) {
-            // compute starting velocity
-            int recycleSize = pointRecycle.size();
-            p.velocity = (recycleSize > 0) ? pointRecycle.get(recycleSize - 1).velocityTo(p) / 2f : 0f;
-
-            // compute starting stroke width
-            paint.setStrokeWidth(computeStrokeWidth(p.velocity));
-        } else if (queueSize == 2) {
-            InkPoint p0 = pointQueue.get(0);
-
-            // compute velocity for new point
-            p.velocity = p0.velocityTo(p);
-
-            // re-compute velocity for 1st point (predictive velocity)
-            p0.velocity = p0.velocity + p.velocity / 2f;
-
-            // find control points for first point
-            p0.findControlPoints(null, p);
-
-            // update starting stroke width
-            paint.setStrokeWidth(computeStrokeWidth(p0.velocity));
-        } else if (queueSize == 3) {
-            InkPoint p0 = pointQueue.get(0);
-            InkPoint p1 = pointQueue.get(1);
-
-            // find control points for second point
-            p1.findControlPoints(p0, p);
-
-            // compute velocity for new point
-            p.velocity = p1.velocityTo(p);
+    void drawLayers(Canvas canvas) {
+        drawLayers(canvas, false);
+    }
 
-            // draw geometry between first 2 points
-            draw(p0, p1);
+    void drawLayers(Canvas canvas, boolean withPendingStrokes) {
+        // background, only cached when it has a bitmap to scale
+        if (backgroundBitmap != null) {
+            if (backgroundLayer.invalid) {
+                Canvas layerCanvas = backgroundLayer.getCanvas();
+                if (layerCanvas != null) {
+                    backgroundLayer.erase();
+                    layerCanvas.drawColor(backgroundColor);
+                    layerCanvas.drawBitmap(backgroundBitmap, null, new RectF(0, 0, backgroundLayer.width, backgroundLayer.height), new Paint(Paint.FILTER_BITMAP_FLAG));
+                    backgroundLayer.invalid = false;
+                }
+            }
+            backgroundLayer.draw(canvas);
+        } else if (backgroundColor != 0) {
+            canvas.drawColor(backgroundColor);
+        }
 
-            // recycle 1st point
-            pointRecycle.add(pointQueue.remove(0));
+        // template, flushing bitmaps drawn before the view had a size
+        if (!pendingStamps.isEmpty()) {
+            Canvas layerCanvas = templateLayer.getCanvas();
+            if (layerCanvas != null) {
+                for (TemplateStamp stamp : pendingStamps) {
+                    stamp.draw(layerCanvas);
+                    stamp.bitmap.recycle();
+                }
+                pendingStamps.clear();
+            }
         }
-    }
+        templateLayer.draw(canvas);
 
-    InkPoint getRecycledPoint(float x, float y, long time) {
-        if (pointRecycle.size() == 0) {
-            return new InkPoint(x, y, time);
+        // restored strokes, below anything drawn since
+        if (withPendingStrokes && pendingStrokes != null) {
+            new InkRenderer(density, new InkCanvasTarget(canvas, null)).render(pendingStrokes);
         }
 
-        return pointRecycle.remove(0).reset(x, y, time);
+        // ink
+        inkLayer.draw(canvas);
+        displayList.draw(canvas);
     }
 
-    float computeStrokeWidth(float velocity) {
-        // compute responsive width
-        if (hasFlags(FLAG_RESPONSIVE_WIDTH)) {
-            return maxStrokeWidth - (maxStrokeWidth - minStrokeWidth) * Math.min(velocity / THRESHOLD_VELOCITY, 1f);
+    void restoreStrokes(final InkStrokeSet strokes) {
+        pendingStrokes = strokes;
+
+        // wait for a size, see onSizeChanged
+        final int width = getWidth();
+        final int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
         }
 
-        return maxStrokeWidth;
+        // the strokes and features are restored right away, only the raster is deferred
+        strokeSet.strokes.addAll(0, strokes.strokes);
+        for (InkStroke stroke : strokes.strokes) {
+            featureExtractor.replay(stroke);
+        }
+        // the gap until the next stroke spans the config change or process death, it is not pen-up time
+        featureExtractor.lastStrokeEnd = -1;
+        isEmpty = strokeSet.isEmpty();
+
+        // bring the renderer state up to date, so new strokes continue exactly as a replay would draw them
+        renderer.target = InkRenderer.NO_TARGET;
+        renderer.render(strokes);
+        renderer.target = target;
+
+        // rasterize in the background
+        final int generation = ++restoreGeneration;
+        restoreExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap restored = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                new InkRenderer(density, new InkCanvasTarget(new Canvas(restored), null)).render(strokes);
+
+                // posted to the main looper rather than the view, so the swap does not wait for the view to be attached
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // discard if the view was cleared or resized meanwhile
+                        if (generation != restoreGeneration || width != inkLayer.width || height != inkLayer.height) {
+                            restored.recycle();
+                            return;
+                        }
+
+                        // keep anything drawn meanwhile on top of the restored strokes
+                        inkLayer.draw(new Canvas(restored));
+                        inkLayer.setBitmap(restored);
+                        target.canvas = inkLayer.getCanvas();
+                        pendingStrokes = null;
+
+                        invalidate();
+                    }
+                });
+            }
+        });
     }
 
-    void draw(InkPoint p) {
-        paint.setStyle(Paint.Style.FILL);
-
-        // draw dot
-        canvas.drawCircle(p.x, p.y, paint.getStrokeWidth() / 2f, paint);
-
-        invalidate();
+    static Bitmap copyBitmap(Bitmap bitmap) {
+        return bitmap.copy(bitmap.getConfig() != null ? bitmap.getConfig() : Bitmap.Config.ARGB_8888, false);
     }
 
-    void draw(InkPoint p1, InkPoint p2) {
-        // init dirty rect
-        dirty.left = Math.min(p1.x, p2.x);
-        dirty.right = Math.max(p1.x, p2.x);
-        dirty.top = Math.min(p1.y, p2.y);
-        dirty.bottom = Math.max(p1.y, p2.y);
-
-        paint.setStyle(Paint.Style.STROKE);
-
-        // adjust low-pass ratio from changing acceleration
-        // using comfortable range of 0.2 -> 0.3 approx.
-        float acceleration = Math.abs((p2.velocity - p1.velocity) / (p2.time - p1.time)); // in/s^2
-        float filterRatio = Math.min(FILTER_RATIO_MIN + FILTER_RATIO_ACCELERATION_MODIFIER * acceleration / THRESHOLD_ACCELERATION, 1f);
-
-        // compute new stroke width
-        float desiredWidth = computeStrokeWidth(p2.velocity);
-        float startWidth = paint.getStrokeWidth();
-
-        float endWidth = filterRatio * desiredWidth + (1f - filterRatio) * startWidth;
-        float deltaWidth = endWidth - startWidth;
-
-        // interpolate bezier curve
-        if (hasFlags(FLAG_INTERPOLATION)) {
-
-            // compute # of steps to interpolate in the bezier curve
-            int steps = (int) (Math.sqrt(Math.pow(p2.x - p1.x, 2) + Math.pow(p2.y - p1.y, 2)) / 5);
-
-            // computational setup for differentials used to interpolate the bezier curve
-            float u = 1f / (steps + 1);
-            float uu = u * u;
-            float uuu = u * u * u;
-
-            float pre1 = 3f * u;
-            float pre2 = 3f * uu;
-            float pre3 = 6f * uu;
-            float pre4 = 6f * uuu;
-
-            float tmp1x = p1.x - p1.c2x * 2f + p2.c1x;
-            float tmp1y = p1.y - p1.c2y * 2f + p2.c1y;
-            float tmp2x = (p1.c2x - p2.c1x) * 3f - p1.x + p2.x;
-            float tmp2y = (p1.c2y - p2.c1y) * 3f - p1.y + p2.y;
-
-            float dx = (p1.c2x - p1.x) * pre1 + tmp1x * pre2 + tmp2x * uuu;
-            float dy = (p1.c2y - p1.y) * pre1 + tmp1y * pre2 + tmp2y * uuu;
-            float ddx = tmp1x * pre3 + tmp2x * pre4;
-            float ddy = tmp1y * pre3 + tmp2y * pre4;
-            float dddx = tmp2x * pre4;
-            float dddy = tmp2y * pre4;
-
-            float x1 = p1.x;
-            float y1 = p1.y;
-            float x2, y2;
-
-            // iterate over each step and draw the curve
-            int i = 0;
-            while (i++ < steps) {
-                x2 = x1 + dx;
-                y2 = y1 + dy;
-
-                paint.setStrokeWidth(startWidth + deltaWidth * i / steps);
-                canvas.drawLine(x1, y1, x2, y2, paint);
-
-                x1 = x2;
-                y1 = y2;
-                dx += ddx;
-                dy += ddy;
-                ddx += dddx;
-                ddy += dddy;
-
-                // adjust dirty bounds to account for curve
-                dirty.left = Math.min(dirty.left, x1);
-                dirty.right = Math.max(dirty.right, x1);
-                dirty.top = Math.min(dirty.top, y1);
-                dirty.bottom = Math.max(dirty.bottom, y1);
-            }
+    boolean isDirectRendering() {
+        return hasFlags(FLAG_DIRECT_RENDERING) && isHardwareAccelerated() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+    }
 
-            paint.setStrokeWidth(endWidth);
-            canvas.drawLine(x1, y1, p2.x, p2.y, paint);
-        }
-        // no interpolation, draw line between points
-        else {
-            canvas.drawLine(p1.x, p1.y, p2.x, p2.y, paint);
-            paint.setStrokeWidth(endWidth);
+    boolean addPoint(float x, float y, long time) {
+        if (renderer.addPoint(x, y, time)) {
+            currentStroke.add(x, y, time);
+            return true;
         }
 
-        invalidate((int) (dirty.left - maxStrokeWidth / 2), (int) (dirty.top - maxStrokeWidth / 2), (int) (dirty.right + maxStrokeWidth / 2), (int) (dirty.bottom + maxStrokeWidth / 2));
+        return false;
     }
 
 
@@ -640,89 +869,55 @@ public class InkView extends View {
     // Util Classes
     //--------------------------------------
 
-    class InkPoint {
+    static class SavedState extends BaseSavedState {
 
-        float x, y, c1x, c1y, c2x, c2y, velocity;
-        long time;
+        byte[] strokes;
 
 
-        InkPoint(float x, float y, long time) {
-            reset(x, y, time);
+        SavedState(Parcelable superState) {
+            super(superState);
         }
 
-        InkPoint reset(float x, float y, long time) {
-            this.x = x;
-            this.y = y;
-            this.time = time;
-            velocity = 0f;
-
-            c1x = x;
-            c1y = y;
-            c2x = x;
-            c2y = y;
-
-            return this;
+        SavedState(Parcel in) {
+            super(in);
+            strokes = in.createByteArray();
         }
 
-        boolean equals(float x, float y) {
-            return this.x == x && this.y == y;
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeByteArray(strokes);
         }
 
-        float distanceTo(InkPoint p) {
-            float dx = p.x - x;
-            float dy = p.y - y;
-
-            return (float) Math.sqrt(dx * dx + dy * dy);
-        }
-
-        float velocityTo(InkPoint p) {
-            return (1000f * distanceTo(p)) / (Math.abs(p.time - time) * getDensity()); // in/s
-        }
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
 
-        void findControlPoints(InkPoint prev, InkPoint next) {
-            if (prev == null && next == null) {
-                return;
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
             }
+        };
+    }
 
-            float r = getSmoothingRatio();
+    static class TemplateStamp {
 
-            // if start of a stroke, c2 control points half-way between this and next point
-            if (prev == null) {
-                c2x = x + r * (next.x - x) / 2f;
-                c2y = y + r * (next.y - y) / 2f;
-                return;
-            }
+        final Bitmap bitmap;
+        final float x, y;
+        final Paint paint;
 
-            // if end of a stroke, c1 control points half-way between this and prev point
-            if (next == null) {
-                c1x = x + r * (prev.x - x) / 2f;
-                c1y = y + r * (prev.y - y) / 2f;
-                return;
-            }
 
-            // init control points
-            c1x = (x + prev.x) / 2f;
-            c1y = (y + prev.y) / 2f;
-            c2x = (x + next.x) / 2f;
-            c2y = (y + next.y) / 2f;
-
-            // calculate control offsets
-            float len1 = distanceTo(prev);
-            float len2 = distanceTo(next);
-            float k = len1 / (len1 + len2);
-            float xM = c1x + (c2x - c1x) * k;
-            float yM = c1y + (c2y - c1y) * k;
-            float dx = x - xM;
-            float dy = y - yM;
-
-            // inverse smoothing ratio
-            r = 1f - r;
-
-            // translate control points
-            c1x += dx + r * (xM - c1x);
-            c1y += dy + r * (yM - c1y);
-            c2x += dx + r * (xM - c2x);
-            c2y += dy + r * (yM - c2y);
+        TemplateStamp(Bitmap bitmap, float x, float y, Paint paint) {
+            this.bitmap = bitmap;
+            this.x = x;
+            this.y = y;
+            this.paint = (paint != null) ? new Paint(paint) : null;
+        }
+
+        void draw(Canvas canvas) {
+            canvas.drawBitmap(bitmap, x, y, paint);
         }
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Loads the stroke encoding and rasterizers in a class loader that only sees the library classes and the Java
+ * runtime, proving they run on a plain JVM without the Android framework
+ */
+public class HeadlessTest {
+
+    @Test
+    public void decodesAndRasterizesWithoutAndroid() throws Exception {
+        byte[] encoded = InkRasterizerTest.line(200, 100).toByteArray();
+
+        URL classes = InkStrokeSet.class.getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader runtime = ClassLoader.getSystemClassLoader().getParent();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes}, runtime)) {
+            Class<?> strokeSetClass = loader.loadClass(InkStrokeSet.class.getName());
+            Class<?> batchClass = loader.loadClass(InkBatchRasterizer.class.getName());
+            Class<?> resultClass = loader.loadClass(InkBatchRasterizer.Result.class.getName());
+            assertNotSame(InkStrokeSet.class, strokeSetClass);
+
+            // decode
+            Object strokeSet = strokeSetClass.getMethod("fromByteArray", byte[].class).invoke(null, (Object) encoded);
+            assertEquals(200, strokeSetClass.getMethod("getWidth").invoke(strokeSet));
+
+            // rasterize, exercising the renderer, the rasterizer and the batch workers
+            Object batch = batchClass.getConstructor(int.class).newInstance(1);
+            try {
+                Method rasterize = batchClass.getMethod("rasterize", List.class, float.class, int.class);
+                List<?> results = (List<?>) rasterize.invoke(batch, Collections.singletonList(encoded), 1f, 0);
+
+                Object result = results.get(0);
+                assertTrue((Boolean) resultClass.getMethod("isSuccessful").invoke(result));
+                assertEquals(200 * 100, ((int[]) resultClass.getMethod("getPixels").invoke(result)).length);
+            } finally {
+                batchClass.getMethod("shutdown").invoke(batch);
+            }
+        }
+    }
+}
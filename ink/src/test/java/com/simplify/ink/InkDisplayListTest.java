@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.simplify.ink;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Covers the software canvas path of the display list, render nodes need a hardware canvas
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class InkDisplayListTest {
+
+    InkDisplayList displayList;
+
+    @Before
+    public void setUp() {
+        displayList = new InkDisplayList(new View(RuntimeEnvironment.application));
+    }
+
+    @Test
+    public void drawsTheStrokeInProgress() {
+        displayList.drawDot(10, 10, 4, Color.BLACK);
+        displayList.drawLine(10, 10, 20, 20, 4, Color.BLACK);
+
+        CountingCanvas canvas = new CountingCanvas();
+        displayList.draw(canvas);
+        assertEquals(1, canvas.dots);
+        assertEquals(1, canvas.lines);
+        assertTrue(displayList.isEmpty());
+    }
+
+    @Test
+    public void commitKeepsDrawingTheStroke() {
+        displayList.drawDot(10, 10, 4, Color.BLACK);
+        displayList.drawLine(10, 10, 20, 20, 4, Color.BLACK);
+        displayList.commit(100, 100);
+
+        assertEquals(0, displayList.opCount);
+        assertEquals(1, displayList.strokeOps.size());
+
+        // nothing to commit
+        displayList.commit(100, 100);
+        assertEquals(1, displayList.strokeOps.size());
+
+        displayList.drawLine(20, 20, 30, 30, 4, Color.BLACK);
+        CountingCanvas canvas = new CountingCanvas();
+        displayList.draw(canvas);
+        assertEquals(1, canvas.dots);
+        assertEquals(2, canvas.lines);
+    }
+
+    @Test
+    public void growsPastItsInitialCapacity() {
+        for (int i = 0; i < 200; i++) {
+            displayList.drawLine(i, 0, i + 1, 0, 4, Color.BLACK);
+        }
+        displayList.commit(100, 100);
+
+        CountingCanvas canvas = new CountingCanvas();
+        displayList.draw(canvas);
+        assertEquals(200, canvas.lines);
+    }
+
+    @Test
+    public void clearDiscardsAllStrokes() {
+        displayList.drawDot(10, 10, 4, Color.BLACK);
+        displayList.commit(100, 100);
+        displayList.drawDot(20, 20, 4, Color.BLACK);
+        displayList.clear();
+
+        CountingCanvas canvas = new CountingCanvas();
+        displayList.draw(canvas);
+        assertEquals(0, canvas.strokeOps());
+        assertTrue(displayList.isEmpty());
+    }
+
+    @Test
+    public void flattenMovesTheStrokesOntoTheCanvas() {
+        displayList.drawDot(10, 10, 4, Color.BLACK);
+        displayList.commit(100, 100);
+        displayList.drawLine(10, 10, 20, 20, 4, Color.BLACK);
+        displayList.commit(100, 100);
+
+        CountingCanvas canvas = new CountingCanvas();
+        displayList.flatten(canvas);
+        assertEquals(2, canvas.strokeOps());
+        assertTrue(displayList.isEmpty());
+
+        canvas = new CountingCanvas();
+        displayList.draw(canvas);
+        assertEquals(0, canvas.strokeOps());
+    }
+
+    @Test
+    public void capturedBitmapIncludesDirectStrokes() {
+        DirectInkView view = new DirectInkView();
+        view.layout(0, 0, 200, 100);
+        InkViewStateTest.drawStroke(view, 1000);
+
+        // nothing went through the ink bitmap
+        assertNull(view.inkLayer.bitmap);
+        assertFalse(view.displayList.isEmpty());
+
+        CountingCanvas canvas = new CountingCanvas();
+        view.drawLayers(canvas, true);
+        assertTrue(canvas.strokeOps() > 0);
+
+        Bitmap bitmap = view.getBitmap();
+        assertNotNull(bitmap);
+        assertEquals(200, bitmap.getWidth());
+    }
+
+    @Test
+    public void switchingToSoftwareKeepsTheStrokeOrder() {
+        DirectInkView view = new DirectInkView();
+        view.layout(0, 0, 200, 100);
+        InkViewStateTest.drawStroke(view, 1000);
+
+        view.direct = false;
+        InkViewStateTest.drawStroke(view, 2000);
+
+        // the direct stroke was drawn into the bitmap before the new one
+        assertTrue(view.displayList.isEmpty());
+        assertEquals(0, view.displayList.opCount);
+        assertNotNull(view.inkLayer.bitmap);
+
+        CountingCanvas canvas = new CountingCanvas();
+        view.drawLayers(canvas, true);
+        assertEquals(0, canvas.strokeOps());
+    }
+
+    @Test
+    public void clearDiscardsDirectStrokes() {
+        DirectInkView view = new DirectInkView();
+        view.layout(0, 0, 200, 100);
+        InkViewStateTest.drawStroke(view, 1000);
+
+        view.clear();
+        assertTrue(view.displayList.isEmpty());
+        assertTrue(view.isViewEmpty());
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    /**
+     * Robolectric never provides a hardware canvas, so direct rendering is forced on
+     */
+    static class DirectInkView extends InkView {
+
+        boolean direct = true;
+
+        DirectInkView() {
+            super(RuntimeEnvironment.application);
+        }
+
+        @Override
+        boolean isDirectRendering() {
+            return direct;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InkFeatureExtractorTest {
+
+    // at 100 dpi, a velocity in in/s is 10 * px / ms
+    static final float DENSITY = 100f;
+
+    InkFeatureExtractor extractor;
+    List<InkFeatures> notified;
+
+    @Before
+    public void setUp() {
+        extractor = new InkFeatureExtractor(DENSITY);
+        notified = new ArrayList<>();
+        extractor.setListener(new InkFeatureExtractor.FeatureListener() {
+            @Override
+            public void onStrokeFeatures(InkFeatures features) {
+                notified.add(features);
+            }
+        });
+    }
+
+    @Test
+    public void countsStrokesAndPoints() {
+        extractor.startStroke(0, 0, 0);
+        extractor.addPoint(10, 0, 10);
+        extractor.endStroke(20);
+
+        extractor.startStroke(50, 50, 120);
+        extractor.addPoint(60, 50, 140);
+        extractor.addPoint(70, 50, 145);
+        extractor.endStroke(150);
+
+        InkFeatures features = extractor.getFeatures();
+        assertEquals(2, features.getStrokeCount());
+        assertEquals(5, features.getPointCount());
+        assertEquals(30f, features.getLength(), 0f);
+        assertEquals(2, notified.size());
+    }
+
+    @Test
+    public void splitsPenDownAndPenUpTime() {
+        extractor.startStroke(0, 0, 0);
+        extractor.addPoint(10, 0, 10);
+        extractor.endStroke(20);
+
+        extractor.startStroke(50, 50, 120);
+        extractor.addPoint(60, 50, 140);
+        extractor.endStroke(150);
+
+        InkFeatures features = extractor.getFeatures();
+        assertEquals(50, features.getPenDownTime());
+        assertEquals(100, features.getPenUpTime());
+        assertEquals(150, features.getDuration());
+    }
+
+    @Test
+    public void tracksBounds() {
+        extractor.startStroke(40, 30, 0);
+        extractor.addPoint(10, 80, 10);
+        extractor.addPoint(90, 20, 20);
+        extractor.endStroke(30);
+
+        assertEquals(10f, extractor.left, 0f);
+        assertEquals(20f, extractor.top, 0f);
+        assertEquals(90f, extractor.right, 0f);
+        assertEquals(80f, extractor.bottom, 0f);
+    }
+
+    @Test
+    public void binsVelocityAndAcceleration() {
+        extractor.startStroke(0, 0, 0);
+        extractor.addPoint(5, 0, 100);      // 0.5 in/s
+        extractor.addPoint(30, 0, 200);     // 2.5 in/s, 20 in/s^2
+        extractor.addPoint(1030, 0, 300);   // 100 in/s, 975 in/s^2, both past the last bin
+        extractor.endStroke(300);
+
+        int[] velocities = new int[InkFeatureExtractor.DEFAULT_BIN_COUNT];
+        velocities[0] = 1;
+        velocities[2] = 1;
+        velocities[15] = 1;
+
+        int[] accelerations = new int[InkFeatureExtractor.DEFAULT_BIN_COUNT];
+        accelerations[0] = 1;
+        accelerations[15] = 1;
+
+        InkFeatures features = extractor.getFeatures();
+        assertArrayEquals(velocities, features.getVelocityHistogram());
+        assertArrayEquals(accelerations, features.getAccelerationHistogram());
+        assertEquals(100f, features.getMaxVelocity(), 0.001f);
+    }
+
+    @Test
+    public void carriesDistanceOfPointsSharingATimestamp() {
+        extractor.startStroke(0, 0, 0);
+        extractor.addPoint(10, 0, 0);
+        extractor.addPoint(20, 0, 100);     // 20 px over 100 ms = 2 in/s
+        extractor.endStroke(100);
+
+        InkFeatures features = extractor.getFeatures();
+        assertEquals(2f, features.getMaxVelocity(), 0.001f);
+        assertEquals(1, features.getVelocityHistogram()[2]);
+        assertEquals(20f, features.getLength(), 0f);
+        assertEquals(100, features.getPenDownTime());
+    }
+
+    @Test
+    public void ignoresPointsOutsideAStroke() {
+        extractor.addPoint(10, 10, 10);
+        extractor.endStroke(20);
+
+        assertEquals(0, extractor.getFeatures().getPointCount());
+        assertTrue(notified.isEmpty());
+    }
+
+    @Test
+    public void replayMatchesLiveCaptureWithoutNotifying() {
+        InkStroke stroke = new InkStroke(0, 0, 1f, 3f, 0.5f);
+        stroke.add(0, 0, 0);
+        stroke.add(5, 0, 100);
+        stroke.add(30, 0, 200);
+        stroke.add(30, 40, 250);
+
+        InkFeatureExtractor live = new InkFeatureExtractor(DENSITY);
+        live.startStroke(0, 0, 0);
+        live.addPoint(5, 0, 100);
+        live.addPoint(30, 0, 200);
+        live.addPoint(30, 40, 250);
+        live.endStroke(250);
+
+        extractor.replay(stroke);
+
+        InkFeatures expected = live.getFeatures();
+        InkFeatures replayed = extractor.getFeatures();
+        assertEquals(expected.getStrokeCount(), replayed.getStrokeCount());
+        assertEquals(expected.getPointCount(), replayed.getPointCount());
+        assertEquals(expected.getPenDownTime(), replayed.getPenDownTime());
+        assertEquals(expected.getLength(), replayed.getLength(), 0f);
+        assertEquals(expected.getMaxVelocity(), replayed.getMaxVelocity(), 0f);
+        assertArrayEquals(expected.getVelocityHistogram(), replayed.getVelocityHistogram());
+        assertArrayEquals(expected.getAccelerationHistogram(), replayed.getAccelerationHistogram());
+        assertTrue(notified.isEmpty());
+
+        // the listener is restored once the replay is done
+        extractor.startStroke(0, 0, 400);
+        extractor.endStroke(410);
+        assertEquals(1, notified.size());
+    }
+
+    @Test
+    public void resetDiscardsEverything() {
+        extractor.startStroke(0, 0, 0);
+        extractor.addPoint(10, 0, 0);
+        extractor.reset();
+
+        extractor.startStroke(0, 0, 1000);
+        extractor.addPoint(10, 0, 1100);    // 10 px over 100 ms = 1 in/s, nothing carried over
+        extractor.endStroke(1100);
+
+        InkFeatures features = extractor.getFeatures();
+        assertEquals(1, features.getStrokeCount());
+        assertEquals(0, features.getPenUpTime());
+        assertEquals(1f, features.getMaxVelocity(), 0.001f);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InkRasterizerTest {
+
+    static final int WHITE = 0xFFFFFFFF;
+    static final int BLACK = 0xFF000000;
+
+    @Test
+    public void rasterizesAtTheOriginalSize() {
+        InkRasterizer rasterizer = new InkRasterizer();
+        int[] pixels = rasterizer.rasterize(line(200, 100));
+
+        assertEquals(200, rasterizer.getWidth());
+        assertEquals(100, rasterizer.getHeight());
+        assertEquals(200 * 100, pixels.length);
+
+        // transparent background, opaque ink on the line
+        assertEquals(0, pixels[0]);
+        assertEquals(BLACK, pixels[50 * 200 + 100]);
+    }
+
+    @Test
+    public void fillsTheBackground() {
+        int[] pixels = new InkRasterizer().rasterize(line(200, 100), 1f, WHITE);
+
+        assertEquals(WHITE, pixels[0]);
+        assertEquals(WHITE, pixels[pixels.length - 1]);
+        assertEquals(BLACK, pixels[50 * 200 + 100]);
+    }
+
+    @Test
+    public void scalesTheOutput() {
+        InkRasterizer rasterizer = new InkRasterizer();
+        int[] pixels = rasterizer.rasterize(line(200, 100), 0.25f, WHITE);
+
+        assertEquals(50, rasterizer.getWidth());
+        assertEquals(25, rasterizer.getHeight());
+        assertEquals(50 * 25, pixels.length);
+        assertTrue(pixels[12 * 50 + 25] != WHITE);
+    }
+
+    @Test
+    public void reusesThePixelBufferForTheSameSize() {
+        InkRasterizer rasterizer = new InkRasterizer();
+        int[] first = rasterizer.rasterize(line(200, 100));
+        int[] second = rasterizer.rasterize(line(200, 100));
+
+        assertSame(first, second);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOversizedOutput() {
+        new InkRasterizer().rasterize(line(InkStrokeSet.MAX_DIMENSION, InkStrokeSet.MAX_DIMENSION));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOverflowingScale() {
+        new InkRasterizer().rasterize(line(200, 100), 1e30f, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveScale() {
+        new InkRasterizer().rasterize(line(200, 100), 0f, 0);
+    }
+
+    @Test
+    public void batchReportsFailuresPerItem() throws InterruptedException {
+        byte[] valid = line(200, 100).toByteArray();
+        byte[] oversized = line(InkStrokeSet.MAX_DIMENSION, InkStrokeSet.MAX_DIMENSION).toByteArray();
+        byte[] garbage = {1, 2, 3};
+
+        InkBatchRasterizer batch = new InkBatchRasterizer(2);
+        try {
+            List<InkBatchRasterizer.Result> results = batch.rasterize(Arrays.asList(valid, garbage, oversized, valid), 1f, WHITE);
+
+            assertEquals(4, results.size());
+            assertTrue(results.get(0).isSuccessful());
+            assertFalse(results.get(1).isSuccessful());
+            assertFalse(results.get(2).isSuccessful());
+            assertTrue(results.get(3).isSuccessful());
+
+            assertEquals(200, results.get(0).getWidth());
+            assertEquals(100, results.get(0).getHeight());
+            assertArrayEquals(new InkRasterizer().rasterize(line(200, 100), 1f, WHITE), results.get(3).getPixels());
+            assertNull(results.get(1).getPixels());
+            assertTrue(results.get(2).getError() instanceof IllegalArgumentException);
+        } finally {
+            batch.shutdown();
+        }
+    }
+
+    @Test
+    public void batchReusesRasterizersAcrossCalls() throws InterruptedException {
+        final List<byte[]> strokeSets = Arrays.asList(line(200, 100).toByteArray(), line(200, 100).toByteArray());
+        final AtomicInteger rasterized = new AtomicInteger();
+        final int[][] buffers = new int[4][];
+
+        InkBatchRasterizer batch = new InkBatchRasterizer(1);
+        try {
+            for (int call = 0; call < 2; call++) {
+                final int offset = call * 2;
+                batch.rasterize(strokeSets, 1f, 0, new InkBatchRasterizer.Callback() {
+                    @Override
+                    public void onRasterized(int index, int[] pixels, int width, int height) {
+                        buffers[offset + index] = pixels;
+                        rasterized.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onFailed(int index, RuntimeException e) {
+                        throw e;
+                    }
+                });
+            }
+        } finally {
+            batch.shutdown();
+        }
+
+        // a single worker thread renders every item into the same buffer
+        assertEquals(4, rasterized.get());
+        for (int[] buffer : buffers) {
+            assertSame(buffers[0], buffer);
+        }
+    }
+
+    @Test
+    public void batchReleasesBuffersOfSuppliedThreads() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        final InkBatchRasterizer batch = new InkBatchRasterizer(executor, 1);
+        try {
+            batch.rasterize(Collections.singletonList(line(200, 100).toByteArray()), 1f, 0);
+
+            // the pool thread gets a fresh rasterizer, without a pixel buffer
+            int retained = executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return batch.rasterizers.get().pixels.length;
+                }
+            }).get();
+            assertEquals(0, retained);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    static InkStrokeSet line(int width, int height) {
+        InkStrokeSet strokeSet = new InkStrokeSet(width, height, 160f);
+
+        // a slow horizontal line through the middle, at the maximum width
+        InkStroke stroke = new InkStroke(0, BLACK, 4f, 4f, 0.75f);
+        for (int i = 0; i <= 10; i++) {
+            stroke.add(width * (0.1f + 0.08f * i), height / 2f, i * 100);
+        }
+        strokeSet.strokes.add(stroke);
+        return strokeSet;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InkRendererTest {
+
+    static final float DENSITY = 420f;
+
+    @Test
+    public void replayMatchesLiveCapture() {
+        RecordingTarget live = new RecordingTarget();
+        InkStrokeSet captured = capture(new InkRenderer(DENSITY, live), new Random(3), 12);
+
+        // replay after a round trip through the encoding, as a server would
+        RecordingTarget replayed = new RecordingTarget();
+        new InkRenderer(DENSITY, replayed).render(InkStrokeSet.fromByteArray(captured.toByteArray()));
+
+        assertFalse(live.ops.isEmpty());
+        assertEquals(live.ops, replayed.ops);
+        assertEquals(live.colors, replayed.colors);
+    }
+
+    @Test
+    public void restoredStateContinuesLikeAReplay() {
+        RecordingTarget ignored = new RecordingTarget();
+        InkStrokeSet captured = capture(new InkRenderer(DENSITY, ignored), new Random(4), 6);
+        InkStroke last = captured.strokes.remove(captured.strokes.size() - 1);
+
+        // restore the first strokes without drawing, then draw the last one
+        RecordingTarget continued = new RecordingTarget();
+        InkRenderer renderer = new InkRenderer(DENSITY, InkRenderer.NO_TARGET);
+        renderer.render(captured);
+        renderer.target = continued;
+        renderer.render(last);
+
+        // the last stroke must match the end of a full replay
+        RecordingTarget full = new RecordingTarget();
+        captured.strokes.add(last);
+        new InkRenderer(DENSITY, full).render(captured);
+
+        int from = full.ops.size() - continued.ops.size();
+        assertFalse(continued.ops.isEmpty());
+        assertEquals(full.ops.subList(from, full.ops.size()), continued.ops);
+        assertEquals(full.colors.subList(from / RecordingTarget.OP_SIZE, full.colors.size()), continued.colors);
+    }
+
+    @Test
+    public void ignoresRepeatedPointsAndPointsOutsideAStroke() {
+        InkRenderer renderer = new InkRenderer(DENSITY, new RecordingTarget());
+        assertFalse(renderer.addPoint(10f, 10f, 0));
+
+        renderer.beginStroke(new InkStroke(InkView.DEFAULT_FLAGS, 0xFF000000, 1.5f, 5f, 0.75f));
+        assertTrue(renderer.addPoint(10f, 10f, 0));
+        assertFalse(renderer.addPoint(10f, 10f, 8));
+        assertTrue(renderer.addPoint(12f, 10f, 16));
+        renderer.endStroke();
+
+        assertFalse(renderer.addPoint(14f, 10f, 24));
+    }
+
+    @Test
+    public void drawsADotForASinglePoint() {
+        RecordingTarget target = new RecordingTarget();
+        InkStroke stroke = new InkStroke(InkView.DEFAULT_FLAGS, 0xFF112233, 1.5f, 5f, 0.75f);
+        stroke.add(40f, 30f, 0);
+
+        new InkRenderer(DENSITY, target).render(stroke);
+
+        assertEquals(1, target.dots);
+        assertEquals(0, target.lines);
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    /**
+     * Captures strokes the way InkView does on touch events: coordinates are quantized, repeated points dropped,
+     * and only accepted points recorded
+     */
+    static InkStrokeSet capture(InkRenderer renderer, Random random, int strokes) {
+        InkStrokeSet strokeSet = new InkStrokeSet(1080, 600, DENSITY);
+        long time = 1000;
+
+        for (int n = 0; n < strokes; n++) {
+            int flags = n % 3 == 0 ? InkView.DEFAULT_FLAGS : InkView.FLAG_RESPONSIVE_WIDTH;
+            InkStroke stroke = new InkStroke(flags, 0xFF000000, 1.5f, 5f, 0.75f);
+            strokeSet.strokes.add(stroke);
+            renderer.beginStroke(stroke);
+
+            float x = 100f + random.nextFloat() * 800f;
+            float y = 100f + random.nextFloat() * 400f;
+            float heading = random.nextFloat() * 6.28f;
+            int points = n == 0 ? 1 : 2 + random.nextInt(60);
+            for (int i = 0; i < points; i++) {
+                // some events repeat the previous position
+                if (random.nextInt(8) != 0) {
+                    heading += (random.nextFloat() - 0.5f) * 0.8f;
+                    float step = 0.2f + random.nextFloat() * 12f;
+                    x += (float) Math.cos(heading) * step;
+                    y += (float) Math.sin(heading) * step;
+                }
+
+                float qx = InkStrokeSet.quantize(x);
+                float qy = InkStrokeSet.quantize(y);
+                if (renderer.addPoint(qx, qy, time)) {
+                    stroke.add(qx, qy, time);
+                }
+                time += 4 + random.nextInt(8);
+            }
+
+            renderer.endStroke();
+            time += 150 + random.nextInt(250);
+        }
+
+        return strokeSet;
+    }
+
+    static class RecordingTarget implements InkRenderer.Target {
+
+        static final int OP_SIZE = 6;
+
+        // Float.equals compares bits, so recordings only match when the geometry is identical
+        final List<Float> ops = new ArrayList<>();
+        final List<Integer> colors = new ArrayList<>();
+        int dots;
+        int lines;
+
+        @Override
+        public void drawDot(float x, float y, float width, int color) {
+            dots++;
+            record(0, x, y, x, y, width, color);
+        }
+
+        @Override
+        public void drawLine(float x1, float y1, float x2, float y2, float width, int color) {
+            lines++;
+            record(1, x1, y1, x2, y2, width, color);
+        }
+
+        @Override
+        public void onDrawn(float left, float top, float right, float bottom) {
+        }
+
+        void record(int op, float x1, float y1, float x2, float y2, float width, int color) {
+            ops.add((float) op);
+            ops.add(x1);
+            ops.add(y1);
+            ops.add(x2);
+            ops.add(y2);
+            ops.add(width);
+            colors.add(color);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class InkStrokeDispatcherTest {
+
+    List<String> events;
+    RecordingListener listener;
+
+    @Before
+    public void setUp() {
+        events = new ArrayList<>();
+        listener = new RecordingListener();
+    }
+
+    @Test
+    public void fallsBackToTheMainThreadWhenTheExecutorRejects() {
+        InkStrokeDispatcher dispatcher = new InkStrokeDispatcher(0);
+        dispatcher.executor = new Executor() {
+            @Override
+            public void execute(Runnable r) {
+                throw new RejectedExecutionException();
+            }
+        };
+        dispatcher.listeners.add(listener);
+
+        drawStroke(dispatcher, 0);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals("[start, points, end]", events.toString());
+        assertFalse(dispatcher.scheduled);
+        assertTrue(dispatcher.queue.isEmpty());
+    }
+
+    @Test
+    public void keepsDeliveringAfterAListenerThrows() {
+        QueueExecutor executor = new QueueExecutor();
+        InkStrokeDispatcher dispatcher = new InkStrokeDispatcher(0);
+        dispatcher.executor = executor;
+        dispatcher.listeners.add(listener);
+        listener.throwOnStart = true;
+
+        // the first start event throws, the rest of the stroke is still delivered
+        drawStroke(dispatcher, 0);
+        executor.runAll();
+        assertEquals(1, executor.failures);
+        assertEquals("[start, points, end]", events.toString());
+
+        // and so is the next stroke
+        drawStroke(dispatcher, 1000);
+        executor.runAll();
+        assertEquals(1, executor.failures);
+        assertEquals("[start, points, end, start, points, end]", events.toString());
+        assertFalse(dispatcher.scheduled);
+        assertTrue(dispatcher.queue.isEmpty());
+    }
+
+    @Test
+    public void clearEndsAStrokeInProgress() {
+        InkView view = new InkView(RuntimeEnvironment.application);
+        view.layout(0, 0, 200, 100);
+        view.setStrokeListenerExecutor(new Executor() {
+            @Override
+            public void execute(Runnable r) {
+                r.run();
+            }
+        });
+        view.addStrokeListener(listener);
+
+        touch(view, MotionEvent.ACTION_DOWN, 10, 10, 0);
+        touch(view, MotionEvent.ACTION_MOVE, 20, 10, 10);
+        view.clear();
+
+        // the buffered point is flushed before the end
+        assertEquals("[start, points, end]", events.toString());
+        assertEquals(2, listener.lastEnd.size());
+
+        // the rest of the gesture is ignored
+        touch(view, MotionEvent.ACTION_MOVE, 30, 10, 20);
+        touch(view, MotionEvent.ACTION_UP, 30, 10, 30);
+        assertEquals("[start, points, end]", events.toString());
+        assertTrue(view.strokeSet.isEmpty());
+        assertTrue(view.strokeDispatcher.batch == null);
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    static void drawStroke(InkStrokeDispatcher dispatcher, long time) {
+        InkStroke stroke = new InkStroke(InkView.DEFAULT_FLAGS, 0xFF000000, 1.5f, 5f, 0.75f);
+        stroke.add(10f, 10f, time);
+        stroke.add(20f, 10f, time + 10);
+        dispatcher.startStroke(stroke, 10f, 10f, time);
+        dispatcher.addPoint(stroke, 20f, 10f, time + 10);
+        dispatcher.endStroke(stroke);
+    }
+
+    static void touch(InkView view, int action, float x, float y, long time) {
+        MotionEvent e = MotionEvent.obtain(time, time, action, x, y, 0);
+        view.onTouchEvent(e);
+        e.recycle();
+    }
+
+    class RecordingListener implements InkView.StrokeListener {
+
+        boolean throwOnStart;
+        InkStroke lastEnd;
+
+        @Override
+        public void onStrokeStart(InkStroke stroke) {
+            events.add("start");
+            if (throwOnStart) {
+                throwOnStart = false;
+                throw new IllegalStateException("listener failure");
+            }
+        }
+
+        @Override
+        public void onStrokePoints(InkStroke points) {
+            events.add("points");
+        }
+
+        @Override
+        public void onStrokeEnd(InkStroke stroke) {
+            events.add("end");
+            lastEnd = stroke;
+        }
+    }
+
+    /**
+     * Runs tasks when asked, swallowing their failures like a thread pool would
+     */
+    static class QueueExecutor implements Executor {
+
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        int failures;
+
+        @Override
+        public void execute(Runnable r) {
+            tasks.add(r);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    failures++;
+                }
+            }
+        }
+    }
+}
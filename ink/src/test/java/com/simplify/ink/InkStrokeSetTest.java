@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InkStrokeSetTest {
+
+    @Test
+    public void roundTripsStrokesAndSettings() {
+        InkStrokeSet strokeSet = new InkStrokeSet(1080, 600, 420f);
+
+        InkStroke first = new InkStroke(InkView.DEFAULT_FLAGS, 0xFF000000, 1.5f, 5f, 0.75f);
+        first.add(InkStrokeSet.quantize(10.3f), InkStrokeSet.quantize(20.7f), 1000);
+        first.add(InkStrokeSet.quantize(12.1f), InkStrokeSet.quantize(19.9f), 1008);
+        first.add(InkStrokeSet.quantize(8.4f), InkStrokeSet.quantize(25.2f), 1016);
+        strokeSet.strokes.add(first);
+
+        // same settings, only the points are written
+        InkStroke second = new InkStroke(InkView.DEFAULT_FLAGS, 0xFF000000, 1.5f, 5f, 0.75f);
+        second.add(500f, 300f, 1400);
+        strokeSet.strokes.add(second);
+
+        // different settings
+        InkStroke third = new InkStroke(0, 0x800000FF, 2f, 8f, 0.5f);
+        third.add(1079.9375f, 0f, 1900);
+        third.add(0f, 599.5f, 1950);
+        strokeSet.strokes.add(third);
+
+        InkStrokeSet decoded = InkStrokeSet.fromByteArray(strokeSet.toByteArray());
+
+        assertEquals(1080, decoded.getWidth());
+        assertEquals(600, decoded.getHeight());
+        assertEquals(420f, decoded.getDensity(), 0f);
+        assertEquals(3, decoded.getStrokes().size());
+        for (int n = 0; n < 3; n++) {
+            assertStrokeEquals(strokeSet.strokes.get(n), decoded.strokes.get(n));
+        }
+    }
+
+    @Test
+    public void roundTripsEmptySet() {
+        InkStrokeSet decoded = InkStrokeSet.fromByteArray(new InkStrokeSet(320, 240, 160f).toByteArray());
+
+        assertTrue(decoded.isEmpty());
+        assertEquals(320, decoded.getWidth());
+        assertEquals(240, decoded.getHeight());
+    }
+
+    @Test
+    public void rejectsTruncatedInput() {
+        byte[] bytes = randomStrokeSet(new Random(1), 5, 40).toByteArray();
+
+        // every strict prefix is missing at least one point value
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                InkStrokeSet.fromByteArray(Arrays.copyOf(bytes, length));
+                fail("Accepted a stroke set truncated to " + length + " of " + bytes.length + " bytes");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void rejectsGarbageWithIllegalArgumentOnly() {
+        Random random = new Random(2);
+        byte[] valid = randomStrokeSet(random, 3, 20).toByteArray();
+
+        for (int n = 0; n < 2000; n++) {
+            byte[] bytes;
+            if (n % 2 == 0) {
+                // random bytes
+                bytes = new byte[random.nextInt(64)];
+                random.nextBytes(bytes);
+            } else {
+                // a valid stroke set with a few corrupted bytes
+                bytes = valid.clone();
+                for (int i = 0; i < 3; i++) {
+                    bytes[random.nextInt(bytes.length)] = (byte) random.nextInt();
+                }
+            }
+
+            try {
+                InkStrokeSet.fromByteArray(bytes);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNull() {
+        InkStrokeSet.fromByteArray(null);
+    }
+
+    @Test
+    public void rejectsInvalidDimensions() {
+        assertRejected(new InkStrokeSet(0, 0, 160f));
+        assertRejected(new InkStrokeSet(100, 0, 160f));
+        assertRejected(new InkStrokeSet(-1, 100, 160f));
+        assertRejected(new InkStrokeSet(InkStrokeSet.MAX_DIMENSION + 1, 100, 160f));
+        assertRejected(new InkStrokeSet(65537, 65537, 160f));
+        assertRejected(new InkStrokeSet(100, 100, 0f));
+        assertRejected(new InkStrokeSet(100, 100, Float.NaN));
+
+        InkStrokeSet largest = InkStrokeSet.fromByteArray(new InkStrokeSet(InkStrokeSet.MAX_DIMENSION, 1, 160f).toByteArray());
+        assertEquals(InkStrokeSet.MAX_DIMENSION, largest.getWidth());
+    }
+
+    @Test
+    public void quantizesToSixteenthsOfAPixel() {
+        assertEquals(10.3125f, InkStrokeSet.quantize(10.3f), 0f);
+        assertEquals(-0.0625f, InkStrokeSet.quantize(-0.07f), 0f);
+        assertEquals(InkStrokeSet.quantize(10.3f), InkStrokeSet.quantize(InkStrokeSet.quantize(10.3f)), 0f);
+    }
+
+    @Test
+    public void zigzagRoundTrips() {
+        long[] values = {0, 1, -1, 63, -64, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long v : values) {
+            assertEquals(v, InkStrokeSet.unzigzag(InkStrokeSet.zigzag(v)));
+        }
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    static InkStrokeSet randomStrokeSet(Random random, int strokes, int points) {
+        InkStrokeSet strokeSet = new InkStrokeSet(800, 400, 320f);
+        long time = 5000;
+        for (int n = 0; n < strokes; n++) {
+            InkStroke stroke = new InkStroke(InkView.DEFAULT_FLAGS, 0xFF000000 | random.nextInt(), 1.5f, 5f, 0.75f);
+            for (int i = 0; i < points; i++) {
+                stroke.add(InkStrokeSet.quantize(random.nextFloat() * 800), InkStrokeSet.quantize(random.nextFloat() * 400), time);
+                time += 4 + random.nextInt(12);
+            }
+            strokeSet.strokes.add(stroke);
+            time += 200;
+        }
+        return strokeSet;
+    }
+
+    static void assertStrokeEquals(InkStroke expected, InkStroke actual) {
+        assertTrue(expected.hasSameSettings(actual));
+        assertEquals(expected.size, actual.size);
+        assertArrayEquals(Arrays.copyOf(expected.xs, expected.size), Arrays.copyOf(actual.xs, actual.size), 0f);
+        assertArrayEquals(Arrays.copyOf(expected.ys, expected.size), Arrays.copyOf(actual.ys, actual.size), 0f);
+        assertArrayEquals(Arrays.copyOf(expected.times, expected.size), Arrays.copyOf(actual.times, actual.size));
+    }
+
+    static void assertRejected(InkStrokeSet strokeSet) {
+        try {
+            InkStrokeSet.fromByteArray(strokeSet.toByteArray());
+            fail("Accepted " + strokeSet.width + " x " + strokeSet.height + " at " + strokeSet.density + " dpi");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
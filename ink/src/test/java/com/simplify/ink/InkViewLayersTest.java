@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import android.graphics.Bitmap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class InkViewLayersTest {
+
+    InkView view;
+
+    @Before
+    public void setUp() {
+        view = new InkView(RuntimeEnvironment.application);
+    }
+
+    @Test
+    public void clearKeepsTheTemplate() {
+        view.layout(0, 0, 200, 100);
+        view.drawBitmap(newBitmap(), 10, 10, null);
+
+        Bitmap template = view.templateLayer.bitmap;
+        assertNotNull(template);
+
+        view.clear();
+        assertSame(template, view.templateLayer.bitmap);
+        assertFalse(template.isRecycled());
+    }
+
+    @Test
+    public void resizeKeepsTheTemplate() {
+        view.layout(0, 0, 200, 100);
+        view.drawBitmap(newBitmap(), 10, 10, null);
+
+        view.layout(0, 0, 100, 200);
+        assertNotNull(view.templateLayer.bitmap);
+        assertEquals(100, view.templateLayer.bitmap.getWidth());
+        assertEquals(200, view.templateLayer.bitmap.getHeight());
+    }
+
+    @Test
+    public void flushesBitmapsDrawnBeforeLayout() {
+        Bitmap bitmap = newBitmap();
+        view.drawBitmap(bitmap, 10, 10, null);
+        bitmap.recycle();
+
+        // a private copy waits for a size
+        assertEquals(1, view.pendingStamps.size());
+        InkView.TemplateStamp stamp = view.pendingStamps.get(0);
+        assertNotSame(bitmap, stamp.bitmap);
+        assertFalse(stamp.bitmap.isRecycled());
+        assertNull(view.templateLayer.bitmap);
+
+        view.layout(0, 0, 200, 100);
+        view.getBitmap();
+
+        assertTrue(view.pendingStamps.isEmpty());
+        assertTrue(stamp.bitmap.isRecycled());
+        assertNotNull(view.templateLayer.bitmap);
+    }
+
+    @Test
+    public void clearTemplateDiscardsPendingBitmaps() {
+        view.drawBitmap(newBitmap(), 10, 10, null);
+        InkView.TemplateStamp stamp = view.pendingStamps.get(0);
+
+        view.clearTemplate();
+
+        assertTrue(view.pendingStamps.isEmpty());
+        assertTrue(stamp.bitmap.isRecycled());
+    }
+
+    @Test
+    public void copiesTheBackgroundBitmap() {
+        view.layout(0, 0, 200, 100);
+
+        Bitmap bitmap = newBitmap();
+        view.setBackgroundLayerBitmap(bitmap);
+        bitmap.recycle();
+
+        assertNotSame(bitmap, view.backgroundBitmap);
+        view.getBitmap();
+        assertFalse(view.backgroundLayer.invalid);
+
+        // re-rasterized from the copy after a resize
+        view.layout(0, 0, 100, 200);
+        assertTrue(view.backgroundLayer.invalid);
+        view.getBitmap();
+        assertFalse(view.backgroundLayer.invalid);
+
+        // replacing it releases the copy
+        Bitmap copy = view.backgroundBitmap;
+        view.setBackgroundLayerBitmap(null);
+        assertTrue(copy.isRecycled());
+        assertNull(view.backgroundBitmap);
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    static Bitmap newBitmap() {
+        return Bitmap.createBitmap(40, 20, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.view.AbsSavedState;
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class InkViewStateTest {
+
+    static final int WIDTH = 200;
+    static final int HEIGHT = 100;
+
+    InkView view;
+    QueueExecutor restores;
+
+    @Before
+    public void setUp() {
+        view = new InkView(RuntimeEnvironment.application);
+        restores = new QueueExecutor();
+        view.restoreExecutor = restores;
+    }
+
+    @Test
+    public void savedStateSurvivesAParcel() {
+        InkView source = new InkView(RuntimeEnvironment.application);
+        source.layout(0, 0, WIDTH, HEIGHT);
+        drawStroke(source, 1000);
+        drawStroke(source, 2000);
+
+        InkView.SavedState state = (InkView.SavedState) source.onSaveInstanceState();
+        assertNotNull(state.strokes);
+
+        Parcel parcel = Parcel.obtain();
+        state.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        InkView.SavedState restored = InkView.SavedState.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+
+        assertArrayEquals(state.strokes, restored.strokes);
+
+        // restoring gives back the same strokes
+        view.onRestoreInstanceState(restored);
+        view.layout(0, 0, WIDTH, HEIGHT);
+        assertEquals(2, view.getStrokes().getStrokes().size());
+        InkStrokeSetTest.assertStrokeEquals(source.strokeSet.strokes.get(1), view.strokeSet.strokes.get(1));
+    }
+
+    @Test
+    public void emptyViewSavesNoStrokes() {
+        view.layout(0, 0, WIDTH, HEIGHT);
+
+        assertNull(((InkView.SavedState) view.onSaveInstanceState()).strokes);
+    }
+
+    @Test
+    public void restoreWaitsForASize() {
+        view.onRestoreInstanceState(savedState(strokes(2)));
+
+        assertNotNull(view.pendingStrokes);
+        assertTrue(view.strokeSet.isEmpty());
+        assertTrue(restores.tasks.isEmpty());
+
+        // still pending strokes are saved again
+        assertNotNull(((InkView.SavedState) view.onSaveInstanceState()).strokes);
+
+        view.layout(0, 0, WIDTH, HEIGHT);
+        assertEquals(2, view.strokeSet.strokes.size());
+        assertFalse(view.isViewEmpty());
+        assertEquals(1, restores.tasks.size());
+    }
+
+    @Test
+    public void swapsTheRasterIn() {
+        view.layout(0, 0, WIDTH, HEIGHT);
+        view.restoreStrokes(strokes(2));
+        assertNull(view.inkLayer.bitmap);
+
+        restores.runAll();
+
+        assertNull(view.pendingStrokes);
+        assertNotNull(view.inkLayer.bitmap);
+        assertEquals(WIDTH, view.inkLayer.bitmap.getWidth());
+        assertSame(view.inkLayer.getCanvas(), view.target.canvas);
+    }
+
+    @Test
+    public void clearCancelsARestore() {
+        view.layout(0, 0, WIDTH, HEIGHT);
+        view.restoreStrokes(strokes(2));
+
+        view.clear();
+        restores.runAll();
+
+        assertNull(view.pendingStrokes);
+        assertNull(view.inkLayer.bitmap);
+        assertTrue(view.strokeSet.isEmpty());
+    }
+
+    @Test
+    public void resizeRestartsARestore() {
+        view.layout(0, 0, WIDTH, HEIGHT);
+        view.restoreStrokes(strokes(2));
+
+        view.layout(0, 0, HEIGHT, WIDTH);
+        assertEquals(2, view.strokeSet.strokes.size());
+        assertEquals(2, restores.tasks.size());
+
+        // the raster of the old size is discarded
+        restores.runAll();
+        assertNull(view.pendingStrokes);
+        assertEquals(HEIGHT, view.inkLayer.bitmap.getWidth());
+        assertEquals(WIDTH, view.inkLayer.bitmap.getHeight());
+    }
+
+    @Test
+    public void capturedBitmapIncludesPendingStrokes() {
+        view.layout(0, 0, WIDTH, HEIGHT);
+        view.restoreStrokes(strokes(2));
+
+        CountingCanvas onDraw = new CountingCanvas();
+        view.drawLayers(onDraw);
+        assertEquals(0, onDraw.strokeOps());
+
+        CountingCanvas capture = new CountingCanvas();
+        view.drawLayers(capture, true);
+        assertTrue(capture.strokeOps() > 0);
+
+        assertNotNull(view.getBitmap());
+    }
+
+    @Test
+    public void restoreDoesNotCountTheGapAsPenUpTime() {
+        view.layout(0, 0, WIDTH, HEIGHT);
+
+        // two strokes 200 ms apart
+        view.restoreStrokes(strokes(2));
+        assertEquals(200, view.getFeatures().getPenUpTime());
+
+        // drawn much later, after a process death
+        drawStroke(view, 10000000);
+        InkFeatures features = view.getFeatures();
+        assertEquals(3, features.getStrokeCount());
+        assertEquals(200, features.getPenUpTime());
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    /**
+     * Strokes of 100 ms each, 200 ms apart
+     */
+    static InkStrokeSet strokes(int count) {
+        InkStrokeSet strokeSet = new InkStrokeSet(WIDTH, HEIGHT, 160f);
+        for (int n = 0; n < count; n++) {
+            long start = n * 300;
+            InkStroke stroke = new InkStroke(InkView.DEFAULT_FLAGS, 0xFF000000, 1.5f, 5f, 0.75f);
+            stroke.add(20f, 20f + n * 10, start);
+            stroke.add(100f, 25f + n * 10, start + 50);
+            stroke.add(180f, 20f + n * 10, start + 100);
+            strokeSet.strokes.add(stroke);
+        }
+        return strokeSet;
+    }
+
+    static Parcelable savedState(InkStrokeSet strokes) {
+        InkView.SavedState state = new InkView.SavedState(AbsSavedState.EMPTY_STATE);
+        state.strokes = strokes.toByteArray();
+        return state;
+    }
+
+    static void drawStroke(InkView view, long time) {
+        touch(view, MotionEvent.ACTION_DOWN, 20, 50, time);
+        touch(view, MotionEvent.ACTION_MOVE, 100, 60, time + 50);
+        touch(view, MotionEvent.ACTION_UP, 180, 50, time + 100);
+    }
+
+    static void touch(InkView view, int action, float x, float y, long time) {
+        MotionEvent e = MotionEvent.obtain(time, time, action, x, y, 0);
+        view.onTouchEvent(e);
+        e.recycle();
+    }
+
+    /**
+     * Runs tasks when asked
+     */
+    static class QueueExecutor implements Executor {
+
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable r) {
+            tasks.add(r);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
@@ -75,6 +75,21 @@ public class MainActivity extends Activity {
             }
         });
 
+        item = menu.findItem(R.id.menu_direct_rendering);
+        item.setChecked(inkView.hasFlag(InkView.FLAG_DIRECT_RENDERING));
+        item.setOnMenuItemClickListener(new MenuItem.OnMenuItemClickListener() {
+            @Override
+            public boolean onMenuItemClick(MenuItem item) {
+                item.setChecked(!item.isChecked());
+                if (item.isChecked()) {
+                    inkView.addFlag(InkView.FLAG_DIRECT_RENDERING);
+                } else {
+                    inkView.removeFlag(InkView.FLAG_DIRECT_RENDERING);
+                }
+                return true;
+            }
+        });
+
         item = menu.findItem(R.id.menu_clear);
         item.setShowAsAction(MenuItem.SHOW_AS_ACTION_IF_ROOM);
         item.setOnMenuItemClickListener(new MenuItem.OnMenuItemClickListener() {
@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Parcelable;
+import android.view.MotionEvent;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Drives an InkView with generated touch input and measures allocations, point recycling, retained state, time spent
+ * per event and heap use. Lives in the InkView package to read the renderer internals.
+ * <p>
+ * Input is generated at {@link Settings#rateHz} samples per second of simulated time: event timestamps advance by
+ * 1000 / rateHz ms (kept with sub-millisecond precision, then rounded to the ms resolution of MotionEvent), but
+ * events are dispatched as fast as possible. The rate therefore shapes the velocities the renderer sees, not the load
+ * per second of wall-clock time.
+ * <p>
+ * The run is split into cycles of {@link Settings#resizeEvery} strokes. Every clear replaces the template with a new
+ * bitmap, and every cycle sets a new background layer bitmap, captures the view with getBitmap(), then saves its
+ * state, clears it, resizes it and restores the state, like a configuration change would.
+ * <p>
+ * Deterministic measurements are gated against absolute budgets. Time per event is gated relative to a warmed up
+ * baseline cycle, so a slow machine does not fail the run, while a slowdown as the session grows does. The heap retained
+ * by the view is sampled after garbage collection at the end of every cycle, and its growth since the first cycle is
+ * gated against a generous budget, catching leaks the retained state check does not look for. The heap used by a
+ * full session is only reported.
+ * <p>
+ * Every setting and budget can be overridden with a system property, ie. -Dink.stress.strokes=20000.
+ * Under Robolectric, canvas shadows record every draw call, so allocations and time per event are upper bounds
+ * of what the view costs on a device.
+ */
+class InkStressHarness {
+
+    static final String PREFIX = "ink.stress.";
+
+    /**
+     * Input generation settings
+     */
+    static class Settings {
+        int strokes = intProperty("strokes", 3000);
+        int pointsPerStroke = intProperty("pointsPerStroke", 60);
+        int rateHz = intProperty("rateHz", 240);
+        int clearEvery = intProperty("clearEvery", 100);
+        int resizeEvery = intProperty("resizeEvery", 500);
+        int width = intProperty("width", 1080);
+        int height = intProperty("height", 600);
+        long seed = intProperty("seed", 42);
+    }
+
+    /**
+     * Limits the run must stay within
+     */
+    static class Budget {
+        long maxAllocatedBytesPerEvent = intProperty("maxAllocatedBytesPerEvent", 16384);
+        int maxRecycleSize = intProperty("maxRecycleSize", 8);
+        int maxSlowdownPercent = intProperty("maxSlowdownPercent", 300);
+        long maxRetainedHeapGrowthBytes = intProperty("maxRetainedHeapGrowthKb", 16384) * 1024L;
+    }
+
+    /**
+     * Measurements of a run
+     */
+    static class Report {
+        long events;
+        long strokes;
+        long elapsedNanos;
+        long eventNanos;
+        long maxEventNanos;
+        long allocatedBytes = -1;
+        int maxRecycleSize;
+
+        // per cycle, the first one warms up and the second one is the baseline
+        List<Double> cycleMeanNanos = new ArrayList<>();
+
+        // session size and retained state, checked after every clear
+        int clears;
+        int maxSessionStrokes;
+        long maxSessionPoints;
+        String retainedState;
+
+        // heap, sampled at the end of every cycle, before and after the clear
+        long baselineHeap = -1;
+        long maxSessionHeapBytes;
+        long maxRetainedHeapGrowthBytes;
+        long retainedHeapGrowthBytes = -1;      // at the end of the last cycle
+        int restores;
+        int captures;
+
+        double meanNanosPerEvent() {
+            return events > 0 ? (double) eventNanos / events : 0;
+        }
+
+        double allocatedBytesPerEvent() {
+            return events > 0 && allocatedBytes >= 0 ? (double) allocatedBytes / events : 0;
+        }
+
+        double allocationRateMbPerSecond() {
+            return eventNanos > 0 && allocatedBytes >= 0 ? (allocatedBytes / 1048576.0) / (eventNanos / 1e9) : 0;
+        }
+
+        /**
+         * Returns the mean time per event of the last cycle relative to the baseline cycle,
+         * or -1 if the run had too few cycles
+         */
+        double slowdown() {
+            int cycles = cycleMeanNanos.size();
+            return cycles >= 3 && cycleMeanNanos.get(1) > 0 ? cycleMeanNanos.get(cycles - 1) / cycleMeanNanos.get(1) : -1;
+        }
+
+        List<String> violations(Budget budget) {
+            List<String> violations = new ArrayList<>();
+            if (retainedState != null) {
+                violations.add("state retained after clear: " + retainedState);
+            }
+            if (allocatedBytes >= 0 && allocatedBytesPerEvent() > budget.maxAllocatedBytesPerEvent) {
+                violations.add(String.format(Locale.US, "allocated %.1f bytes per event, budget is %d", allocatedBytesPerEvent(), budget.maxAllocatedBytesPerEvent));
+            }
+            if (maxRecycleSize > budget.maxRecycleSize) {
+                violations.add("point recycle list reached " + maxRecycleSize + ", budget is " + budget.maxRecycleSize);
+            }
+            if (slowdown() * 100 > budget.maxSlowdownPercent) {
+                violations.add(String.format(Locale.US, "last cycle is %.0f%% of the baseline time per event, budget is %d%%", slowdown() * 100, budget.maxSlowdownPercent));
+            }
+            if (retainedHeapGrowthBytes > budget.maxRetainedHeapGrowthBytes) {
+                violations.add("retained heap grew by " + retainedHeapGrowthBytes / 1024 + " KB, budget is " + budget.maxRetainedHeapGrowthBytes / 1024 + " KB");
+            }
+            return violations;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder cycles = new StringBuilder();
+            for (double mean : cycleMeanNanos) {
+                cycles.append(cycles.length() > 0 ? ", " : "").append(String.format(Locale.US, "%.1f", mean / 1000));
+            }
+
+            return String.format(Locale.US,
+                    "events: %d, strokes: %d, elapsed: %.1f ms%n"
+                            + "time per event: mean %.1f us, max %.1f us%n"
+                            + "time per event by cycle: [%s] us, last vs baseline: %s%n"
+                            + "allocations: %s%n"
+                            + "max pointRecycle size: %d%n"
+                            + "session: max %d strokes, %d points, %d clears, %d captures, %d restores, retained state: %s%n"
+                            + "heap: max %d KB per session (not gated), retained growth %s",
+                    events, strokes, elapsedNanos / 1e6,
+                    meanNanosPerEvent() / 1000, maxEventNanos / 1000.0,
+                    cycles, slowdown() < 0 ? "unavailable, fewer than 3 cycles" : String.format(Locale.US, "%.0f%%", slowdown() * 100),
+                    allocatedBytes < 0 ? "unavailable on this JVM" : String.format(Locale.US, "%.1f bytes per event, %.1f MB/s", allocatedBytesPerEvent(), allocationRateMbPerSecond()),
+                    maxRecycleSize,
+                    maxSessionStrokes, maxSessionPoints, clears, captures, restores, retainedState == null ? "none" : retainedState,
+                    maxSessionHeapBytes / 1024,
+                    retainedHeapGrowthBytes < 0 ? "unavailable, fewer than 2 cycles" : String.format(Locale.US, "%d KB, max %d KB", retainedHeapGrowthBytes / 1024, maxRetainedHeapGrowthBytes / 1024));
+        }
+    }
+
+    final Settings settings;
+    final Random random;
+    final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    double time = 1000;         // simulated event time, in ms
+    long cycleEvents;
+    long cycleNanos;
+
+
+    InkStressHarness(Settings settings) {
+        this.settings = settings;
+        random = new Random(settings.seed);
+    }
+
+    Report run(InkView view) {
+        Report report = new Report();
+        double eventInterval = 1000.0 / Math.max(settings.rateHz, 1);
+        boolean portrait = false;
+
+        layout(view, settings.width, settings.height);
+        setBackground(view);
+        stampTemplate(view);
+        long start = System.nanoTime();
+
+        for (int s = 1; s <= settings.strokes; s++) {
+            drawStroke(view, eventInterval, report);
+            report.strokes++;
+
+            // pen-up gap between strokes
+            time += 150 + random.nextInt(250);
+
+            boolean cycleEnd = settings.resizeEvery > 0 && s % settings.resizeEvery == 0;
+            Parcelable state = null;
+            if (cycleEnd) {
+                endCycle(report);
+
+                // heap with a full session, before it is cleared
+                long sessionHeap = usedHeap();
+                if (report.baselineHeap >= 0) {
+                    report.maxSessionHeapBytes = Math.max(report.maxSessionHeapBytes, sessionHeap - report.baselineHeap);
+                }
+
+                capture(view, report);
+                state = view.onSaveInstanceState();
+            }
+
+            if ((settings.clearEvery > 0 && s % settings.clearEvery == 0) || cycleEnd) {
+                clear(view, report);
+                stampTemplate(view);
+            }
+
+            if (cycleEnd) {
+                portrait = !portrait;
+                layout(view, portrait ? settings.height : settings.width, portrait ? settings.width : settings.height);
+                setBackground(view);
+
+                // heap retained by an empty view, the first cycle warms everything up and serves as the baseline
+                long retainedHeap = usedHeap();
+                if (report.baselineHeap < 0) {
+                    report.baselineHeap = retainedHeap;
+                } else {
+                    report.retainedHeapGrowthBytes = retainedHeap - report.baselineHeap;
+                    report.maxRetainedHeapGrowthBytes = Math.max(report.maxRetainedHeapGrowthBytes, report.retainedHeapGrowthBytes);
+                }
+
+                // the next session starts from the saved strokes, like after a configuration change
+                view.onRestoreInstanceState(state);
+                report.restores++;
+            }
+        }
+
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+
+    //--------------------------------------
+    // Util
+    //--------------------------------------
+
+    void drawStroke(InkView view, double eventInterval, Report report) {
+        float x = settings.width * (0.1f + 0.8f * random.nextFloat());
+        float y = settings.height * (0.1f + 0.8f * random.nextFloat());
+        float heading = (float) (random.nextFloat() * Math.PI * 2);
+
+        dispatch(view, MotionEvent.ACTION_DOWN, x, y, report);
+        for (int i = 0; i < settings.pointsPerStroke; i++) {
+            // wander like a pen, with a varying speed
+            heading += (random.nextFloat() - 0.5f) * 0.8f;
+            float step = 1f + random.nextFloat() * 12f;
+            x = Math.max(0, Math.min(settings.width, x + (float) Math.cos(heading) * step));
+            y = Math.max(0, Math.min(settings.height, y + (float) Math.sin(heading) * step));
+
+            time += eventInterval;
+            dispatch(view, MotionEvent.ACTION_MOVE, x, y, report);
+        }
+        time += eventInterval;
+        dispatch(view, MotionEvent.ACTION_UP, x, y, report);
+    }
+
+    void dispatch(InkView view, int action, float x, float y, Report report) {
+        long eventTime = Math.round(time);
+        MotionEvent e = MotionEvent.obtain(eventTime, eventTime, action, x, y, 0);
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        view.onTouchEvent(e);
+        long elapsed = System.nanoTime() - start;
+
+        if (allocated >= 0) {
+            report.allocatedBytes = Math.max(report.allocatedBytes, 0) + allocatedBytes() - allocated;
+        }
+        report.events++;
+        report.eventNanos += elapsed;
+        report.maxEventNanos = Math.max(report.maxEventNanos, elapsed);
+        report.maxRecycleSize = Math.max(report.maxRecycleSize, view.renderer.pointRecycle.size());
+
+        cycleEvents++;
+        cycleNanos += elapsed;
+
+        e.recycle();
+    }
+
+    void endCycle(Report report) {
+        report.cycleMeanNanos.add(cycleEvents > 0 ? (double) cycleNanos / cycleEvents : 0);
+        cycleEvents = 0;
+        cycleNanos = 0;
+    }
+
+    void clear(InkView view, Report report) {
+        // session size, before it is discarded
+        long points = 0;
+        for (InkStroke stroke : view.strokeSet.strokes) {
+            points += stroke.size;
+        }
+        report.maxSessionStrokes = Math.max(report.maxSessionStrokes, view.strokeSet.strokes.size());
+        report.maxSessionPoints = Math.max(report.maxSessionPoints, points);
+
+        view.clear();
+        report.clears++;
+
+        if (report.retainedState == null) {
+            report.retainedState = retainedState(view);
+        }
+    }
+
+    /**
+     * Replaces the template with a new bitmap, recycled right away as the view keeps none of it
+     */
+    void stampTemplate(InkView view) {
+        Bitmap stamp = Bitmap.createBitmap(64 + random.nextInt(64), 64 + random.nextInt(64), Bitmap.Config.ARGB_8888);
+        view.clearTemplate();
+        view.drawBitmap(stamp, random.nextInt(settings.width / 2), random.nextInt(settings.height / 2), null);
+        stamp.recycle();
+    }
+
+    /**
+     * Replaces the background layer bitmap, recycled right away as the view keeps a copy
+     */
+    void setBackground(InkView view) {
+        Bitmap background = Bitmap.createBitmap(32, 32, Bitmap.Config.ARGB_8888);
+        view.setBackgroundLayerColor(random.nextBoolean() ? Color.WHITE : 0);
+        view.setBackgroundLayerBitmap(background);
+        background.recycle();
+    }
+
+    void capture(InkView view, Report report) {
+        Bitmap bitmap = view.getBitmap();
+        bitmap.recycle();
+        report.captures++;
+    }
+
+    /**
+     * Describes the per-session state a cleared view still holds, or returns null if there is none
+     */
+    static String retainedState(InkView view) {
+        List<String> retained = new ArrayList<>();
+        addIfRetained(retained, "strokeSet strokes", view.strokeSet.strokes.size());
+        addIfRetained(retained, "displayList strokes", view.displayList.strokeOps.size());
+        addIfRetained(retained, "displayList ops", view.displayList.opCount);
+        addIfRetained(retained, "renderer points", view.renderer.pointQueue.size());
+        addIfRetained(retained, "feature points", view.featureExtractor.pointCount);
+        addIfRetained(retained, "dispatcher events", view.strokeDispatcher.queue.size());
+        addIfRetained(retained, "pending restore", view.pendingStrokes != null ? 1 : 0);
+        return retained.isEmpty() ? null : retained.toString();
+    }
+
+    static void addIfRetained(List<String> retained, String name, int count) {
+        if (count != 0) {
+            retained.add(name + " " + count);
+        }
+    }
+
+    long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    static void layout(InkView view, int width, int height) {
+        view.layout(0, 0, width, height);
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static int intProperty(String name, int defaultValue) {
+        return Integer.getInteger(PREFIX + name, defaultValue);
+    }
+}
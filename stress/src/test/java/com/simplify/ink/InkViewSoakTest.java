@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2016 Mastercard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.simplify.ink;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class InkViewSoakTest {
+
+    @Test
+    public void longSessionStaysWithinBudget() {
+        InkView view = new InkView(RuntimeEnvironment.application);
+
+        Executor inline = new Executor() {
+            @Override
+            public void execute(Runnable r) {
+                r.run();
+            }
+        };
+
+        // restores are rasterized inline too, so each one completes within its cycle
+        view.restoreExecutor = inline;
+
+        // exercise every listener path, delivering stroke events inline
+        view.setStrokeListenerExecutor(inline);
+        view.addStrokeListener(new InkView.StrokeListener() {
+            @Override
+            public void onStrokeStart(InkStroke stroke) {
+            }
+
+            @Override
+            public void onStrokePoints(InkStroke points) {
+            }
+
+            @Override
+            public void onStrokeEnd(InkStroke stroke) {
+            }
+        });
+        view.getFeatureExtractor().setListener(new InkFeatureExtractor.FeatureListener() {
+            @Override
+            public void onStrokeFeatures(InkFeatures features) {
+            }
+        });
+
+        InkStressHarness.Budget budget = new InkStressHarness.Budget();
+        InkStressHarness.Report report = new InkStressHarness(new InkStressHarness.Settings()).run(view);
+        System.out.println(report);
+
+        List<String> violations = report.violations(budget);
+        assertTrue("Stress budget exceeded: " + violations, violations.isEmpty());
+    }
+}